@@ -0,0 +1,65 @@
+package com.foo.config;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wiring of the components for the benchmarks that run them outside of a Spring context.
+ */
+final class BenchmarkBeans {
+
+    private BenchmarkBeans() {
+    }
+
+    /**
+     * Sets an {@code @Autowired} or {@code @Value} field.
+     */
+    static <T> T inject(T target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException("No field " + fieldName + " in " + target.getClass());
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+        return target;
+    }
+
+    /**
+     * @return an implementation of the interface doing nothing. Empty collections, false, 0, stubs of the other
+     * interfaces (i.e. a ScheduledFuture) or null.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Class<?> returnType = method.getReturnType();
+            if (method.getName().equals("toString")) {
+                return "stub " + type.getSimpleName();
+            }
+            if (returnType == Set.class) {
+                return Collections.emptySet();
+            }
+            if (returnType == List.class) {
+                return Collections.emptyList();
+            }
+            if (returnType == Map.class) {
+                return Collections.emptyMap();
+            }
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == long.class) {
+                return 0L;
+            }
+            if (returnType == int.class) {
+                return 0;
+            }
+            return returnType.isInterface() ? stub(returnType) : null;
+        });
+    }
+}
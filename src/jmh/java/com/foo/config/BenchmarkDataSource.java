@@ -0,0 +1,70 @@
+package com.foo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Postgres for the benchmarks. Defaults to the local database of the README, override with the system properties
+ * jmh.datasource.url, jmh.datasource.username and jmh.datasource.password. Migrated with the application's flyway
+ * scripts. Benchmarks that fill the tables with their own data use a schema of their own.
+ */
+final class BenchmarkDataSource {
+
+    private BenchmarkDataSource() {
+    }
+
+    static HikariDataSource create() {
+        return create("datasync");
+    }
+
+    static HikariDataSource create(String schema) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("jmh.datasource.url",
+                "jdbc:postgresql://localhost:5432/scale_poc?currentSchema=datasync"));
+        dataSource.setUsername(System.getProperty("jmh.datasource.username", "postgres"));
+        dataSource.setPassword(System.getProperty("jmh.datasource.password", "admin"));
+        dataSource.setMaximumPoolSize(8);
+        dataSource.setSchema(schema);
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(schema)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        return dataSource;
+    }
+
+    static void truncate(HikariDataSource dataSource, String... tables) {
+        new JdbcTemplate(dataSource).execute("TRUNCATE " + String.join(", ", tables));
+    }
+
+    /**
+     * Trade rows as read by the trade-ETL readers - case insensitive maps.
+     */
+    static List<Map<String, Object>> trades(long firstTradeId, int count) {
+        List<Map<String, Object>> trades = new ArrayList<>(count);
+        Date businessDate = Date.valueOf(LocalDate.now());
+        Timestamp lastUpdated = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> trade = new LinkedCaseInsensitiveMap<>();
+            trade.put("trade_id", firstTradeId + i);
+            trade.put("business_date", businessDate);
+            trade.put("instrument", "INSTRUMENT-" + (i % 1000));
+            trade.put("quantity", BigDecimal.valueOf(i % 500 + 1));
+            trade.put("price", new BigDecimal("101.250000"));
+            trade.put("last_updated", lastUpdated);
+            trades.add(trade);
+        }
+        return trades;
+    }
+}
@@ -0,0 +1,89 @@
+package com.foo.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead {@link ChunkListener} adds to every chunk : the lease check and the chunk metrics, with the lease checked
+ * on every chunk or every 16th (chunk.lease-check-interval). leaseCheck is the lease check alone, so chunk minus
+ * leaseCheck is what the metrics cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChunkListenerBenchmark {
+
+    private static final String JOB_NAME = "bench-job";
+
+    @Param({"1", "16"})
+    private int leaseCheckInterval;
+
+    private AbstractJobCoordinator jobCoordinator;
+    private ChunkListener chunkListener;
+    private StepExecution stepExecution;
+    private StepContext stepContext;
+
+    @Setup
+    public void setUp() {
+        jobCoordinator = new InMemoryJobCoordinator("bench-owner", new InMemoryLockTable(), 0, 0);
+        jobCoordinator.registerJob(JOB_NAME, true);
+        chunkListener = new ChunkListener();
+        BenchmarkBeans.inject(chunkListener, "jobCoordinator", jobCoordinator);
+        BenchmarkBeans.inject(chunkListener, "remotePartitionRegistry", new RemotePartitionRegistry());
+        BenchmarkBeans.inject(chunkListener, "leaseCheckInterval", leaseCheckInterval);
+
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, JOB_NAME), 1L, new JobParameters(), null);
+        stepExecution = jobExecution.createStepExecution("bench-step");
+        stepExecution.setId(1L);
+        // one step context per step execution, as StepSynchronizationManager keeps it
+        stepContext = new StepContext(stepExecution);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jobCoordinator.cleanup();
+    }
+
+    @Benchmark
+    public ChunkContext chunk() {
+        // a chunk context per chunk, as the step does
+        ChunkContext chunkContext = new ChunkContext(stepContext);
+        chunkListener.beforeChunk(chunkContext);
+        stepExecution.setWriteCount(stepExecution.getWriteCount() + 1);
+        chunkListener.afterChunk(chunkContext);
+        return chunkContext;
+    }
+
+    @Benchmark
+    public ChunkContext leaseCheck() {
+        ChunkContext chunkContext = new ChunkContext(stepContext);
+        LeaseFence leaseFence = jobCoordinator.getLeaseFence(JOB_NAME);
+        if (leaseFence.shouldCheck(leaseCheckInterval) && !leaseFence.isValid()) {
+            throw new IllegalStateException("Lock expired for " + JOB_NAME);
+        }
+        stepExecution.setWriteCount(stepExecution.getWriteCount() + 1);
+        return chunkContext;
+    }
+
+    @Benchmark
+    public ChunkContext baseline() {
+        ChunkContext chunkContext = new ChunkContext(stepContext);
+        stepExecution.setWriteCount(stepExecution.getWriteCount() + 1);
+        return chunkContext;
+    }
+}
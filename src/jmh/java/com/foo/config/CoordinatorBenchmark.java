@@ -0,0 +1,83 @@
+package com.foo.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AbstractJobCoordinator#canContinue(String)}, which every tick and chunk goes through, from one thread, from
+ * 8 threads, and from 7 threads while an 8th keeps extending the leases the way the heart beat does. The logic is
+ * shared by all the backends, the in-memory one is used so that nothing but the fence is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CoordinatorBenchmark {
+
+    @Param({"4", "64"})
+    private int jobs;
+
+    private AbstractJobCoordinator jobCoordinator;
+    private String[] jobNames;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private int next;
+    }
+
+    @Setup
+    public void setUp() {
+        jobCoordinator = new InMemoryJobCoordinator("bench-owner", new InMemoryLockTable(), 0, 0);
+        jobNames = new String[jobs];
+        for (int i = 0; i < jobs; i++) {
+            jobNames[i] = "bench-job-" + i;
+            jobCoordinator.registerJob(jobNames[i], true);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jobCoordinator.cleanup();
+    }
+
+    private String nextJob(ThreadState threadState) {
+        return jobNames[Math.floorMod(threadState.next++, jobNames.length)];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean canContinue(ThreadState threadState) {
+        return jobCoordinator.canContinue(nextJob(threadState));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean canContinueShared(ThreadState threadState) {
+        return jobCoordinator.canContinue(nextJob(threadState));
+    }
+
+    @Benchmark
+    @Group("heartbeat")
+    @GroupThreads(7)
+    public boolean canContinueWhileExtending(ThreadState threadState) {
+        return jobCoordinator.canContinue(nextJob(threadState));
+    }
+
+    @Benchmark
+    @Group("heartbeat")
+    @GroupThreads(1)
+    public void extend(ThreadState threadState) {
+        jobCoordinator.getLeaseFence(nextJob(threadState)).extend(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+    }
+}
@@ -0,0 +1,139 @@
+package com.foo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.ExecutionContextDao;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Commit latency of a step execution context update - what every chunk commit pays - with
+ * repository.context-format json and cbor, for a small context and one with the watermarks of 200 partitions.
+ * <p>
+ * The size of a serialized context and the size of BATCH_STEP_EXECUTION_CONTEXT with its TOAST table (live and dead
+ * row versions, i.e. bloat before vacuum) are reported along with the time, see {@link ContextSize}. Runs in a schema
+ * of its own (datasync_bench_context), see {@link BenchmarkDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExecutionContextBenchmark {
+
+    private static final String JOB_NAME = "bench-job";
+    private static final String CONTEXT_SIZE = "SELECT pg_total_relation_size('BATCH_STEP_EXECUTION_CONTEXT')";
+
+    @Param({"json", BatchConfiguration.CBOR_CONTEXT})
+    private String format;
+
+    @Param({"10", "200"})
+    private int partitions;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ExecutionContextSerializer serializer;
+    private JobRepository jobRepository;
+    private StepExecution stepExecution;
+    private long watermark;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDataSource.create("datasync_bench_context");
+        BenchmarkDataSource.truncate(dataSource, "BATCH_STEP_EXECUTION_CONTEXT", "BATCH_STEP_EXECUTION",
+                "BATCH_JOB_EXECUTION_CONTEXT", "BATCH_JOB_EXECUTION_PARAMS", "BATCH_JOB_EXECUTION",
+                "BATCH_JOB_INSTANCE");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("VACUUM FULL BATCH_STEP_EXECUTION_CONTEXT");
+        boolean binary = BatchConfiguration.CBOR_CONTEXT.equals(format);
+        serializer = binary ? new BinaryExecutionContextSerializer(1024)
+                : new Jackson2ExecutionContextStringSerializer();
+
+        ContextDaoJobRepositoryFactoryBean<ExecutionContextDao> repositoryFactory =
+                new ContextDaoJobRepositoryFactoryBean<>(binary ? this::binaryExecutionContextDao : null,
+                        Function.identity());
+        repositoryFactory.setDataSource(dataSource);
+        repositoryFactory.setTransactionManager(new DataSourceTransactionManager(dataSource));
+        repositoryFactory.setIsolationLevelForCreate("ISOLATION_READ_UNCOMMITTED");
+        repositoryFactory.afterPropertiesSet();
+        jobRepository = repositoryFactory.getObject();
+
+        JobExecution jobExecution = jobRepository.createJobExecution(JOB_NAME, new JobParametersBuilder()
+                .addLong("run.id", System.currentTimeMillis())
+                .toJobParameters());
+        stepExecution = jobExecution.createStepExecution("bench-step");
+        ExecutionContext executionContext = stepExecution.getExecutionContext();
+        executionContext.putString("batch.taskletType",
+                "org.springframework.batch.core.step.item.ChunkOrientedTasklet");
+        executionContext.putString("batch.stepType", "org.springframework.batch.core.step.tasklet.TaskletStep");
+        for (int partition = 0; partition < partitions; partition++) {
+            executionContext.putLong("partition" + partition + ".watermark", partition * 1000L);
+            executionContext.put("partition" + partition + ".lastUpdated", new Timestamp(System.currentTimeMillis()));
+        }
+        jobRepository.add(stepExecution);
+    }
+
+    private ExecutionContextDao binaryExecutionContextDao() throws Exception {
+        BinaryExecutionContextDao dao = new BinaryExecutionContextDao(serializer);
+        dao.setJdbcTemplate(jdbcTemplate);
+        dao.afterPropertiesSet();
+        return dao;
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void updateExecutionContext(ContextSize contextSize) {
+        // a chunk moved the watermark of one partition
+        stepExecution.getExecutionContext().putLong("partition" + (watermark % partitions) + ".watermark",
+                ++watermark);
+        jobRepository.updateExecutionContext(stepExecution);
+    }
+
+    /**
+     * Sizes at the end of the iteration, as secondary results of the benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ContextSize {
+
+        public long contextBytes;
+        public long tableKiloBytes;
+
+        @TearDown(Level.Iteration)
+        public void measure(ExecutionContextBenchmark benchmark) throws Exception {
+            Map<String, Object> context = new HashMap<>();
+            benchmark.stepExecution.getExecutionContext().entrySet()
+                    .forEach(entry -> context.put(entry.getKey(), entry.getValue()));
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            benchmark.serializer.serialize(context, serialized);
+            contextBytes = serialized.size();
+            tableKiloBytes = benchmark.jdbcTemplate.queryForObject(CONTEXT_SIZE, Long.class) / 1024;
+        }
+    }
+}
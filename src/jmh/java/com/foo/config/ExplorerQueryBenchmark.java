@@ -0,0 +1,117 @@
+package com.foo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the explorer queries every {@link JobSyncRunnable} tick runs, against the number of executions in the
+ * job repository (30 second runs of 4 jobs on one instance are ~80k executions a week), with and without the
+ * indexes of V1_7__batch_indexes.sql. Runs in a schema of its own (datasync_bench), see {@link BenchmarkDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExplorerQueryBenchmark {
+
+    private static final String JOB_NAME = "bench-job-1";
+    private static final String INDEX_MIGRATION = "db/migration/V1_7__batch_indexes.sql";
+    private static final List<String> INDEXES = List.of("JOB_INST_NAME_IDX", "JOB_EXEC_INST_IDX",
+            "JOB_EXEC_RUNNING_IDX", "JOB_EXEC_END_TIME_IDX", "JOB_EXEC_PARAMS_EXEC_IDX", "STEP_EXEC_JOB_EXEC_IDX");
+
+    @Param({"10000", "100000", "1000000"})
+    private int executions;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private HikariDataSource dataSource;
+    private JobExplorer jobExplorer;
+    private JobInstance lastJobInstance;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDataSource.create("datasync_bench");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        BenchmarkDataSource.truncate(dataSource, "BATCH_STEP_EXECUTION_CONTEXT", "BATCH_STEP_EXECUTION",
+                "BATCH_JOB_EXECUTION_CONTEXT", "BATCH_JOB_EXECUTION_PARAMS", "BATCH_JOB_EXECUTION",
+                "BATCH_JOB_INSTANCE");
+        // one instance per execution, as with startNextInstance. 4 jobs, the last one of each still running
+        jdbcTemplate.update("INSERT INTO BATCH_JOB_INSTANCE (JOB_INSTANCE_ID, VERSION, JOB_NAME, JOB_KEY) "
+                + "SELECT g, 0, 'bench-job-' || (g % 4), md5(g::text) FROM generate_series(1, ?) g", executions);
+        jdbcTemplate.update("INSERT INTO BATCH_JOB_EXECUTION (JOB_EXECUTION_ID, VERSION, JOB_INSTANCE_ID, "
+                + "CREATE_TIME, START_TIME, END_TIME, STATUS, EXIT_CODE, EXIT_MESSAGE, LAST_UPDATED) "
+                + "SELECT g, 2, g, now() - (? - g) * interval '30 seconds', now() - (? - g) * interval '30 seconds', "
+                + "CASE WHEN g > ? - 4 THEN NULL "
+                + "ELSE now() - (? - g) * interval '30 seconds' + interval '5 seconds' END, "
+                + "CASE WHEN g > ? - 4 THEN 'STARTED' ELSE 'COMPLETED' END, 'COMPLETED', '', now() "
+                + "FROM generate_series(1, ?) g",
+                executions, executions, executions, executions, executions, executions);
+        jdbcTemplate.update("INSERT INTO BATCH_JOB_EXECUTION_PARAMS (JOB_EXECUTION_ID, TYPE_CD, KEY_NAME, LONG_VAL, "
+                + "IDENTIFYING) SELECT g, 'LONG', 'run.id', g, 'Y' FROM generate_series(1, ?) g", executions);
+        jdbcTemplate.update("INSERT INTO BATCH_STEP_EXECUTION (STEP_EXECUTION_ID, VERSION, STEP_NAME, "
+                + "JOB_EXECUTION_ID, START_TIME, END_TIME, STATUS, COMMIT_COUNT, READ_COUNT, FILTER_COUNT, "
+                + "WRITE_COUNT, READ_SKIP_COUNT, WRITE_SKIP_COUNT, PROCESS_SKIP_COUNT, ROLLBACK_COUNT, EXIT_CODE, "
+                + "EXIT_MESSAGE, LAST_UPDATED) SELECT g, 3, 'step', g, now(), now(), 'COMPLETED', 1, 0, 0, 0, 0, 0, "
+                + "0, 0, 'COMPLETED', '', now() FROM generate_series(1, ?) g", executions);
+
+        for (String index : INDEXES) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+        }
+        if (indexed) {
+            String migration = StreamUtils.copyToString(new ClassPathResource(INDEX_MIGRATION).getInputStream(),
+                    StandardCharsets.UTF_8);
+            for (String statement : migration.split(";")) {
+                if (statement.contains("CREATE INDEX")) {
+                    jdbcTemplate.execute(statement.substring(statement.indexOf("CREATE INDEX")));
+                }
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        JobExplorerFactoryBean jobExplorerFactoryBean = new JobExplorerFactoryBean();
+        jobExplorerFactoryBean.setDataSource(dataSource);
+        jobExplorerFactoryBean.afterPropertiesSet();
+        jobExplorer = jobExplorerFactoryBean.getObject();
+        lastJobInstance = jobExplorer.findJobInstancesByJobName(JOB_NAME, 0, 1).get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<JobInstance> findLastJobInstance() {
+        return jobExplorer.findJobInstancesByJobName(JOB_NAME, 0, 1);
+    }
+
+    @Benchmark
+    public Set<JobExecution> findRunningJobExecutions() {
+        return jobExplorer.findRunningJobExecutions(JOB_NAME);
+    }
+
+    @Benchmark
+    public List<JobExecution> getJobExecutionsOfLastInstance() {
+        return jobExplorer.getJobExecutions(lastJobInstance);
+    }
+}
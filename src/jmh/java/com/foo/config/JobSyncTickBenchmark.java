@@ -0,0 +1,146 @@
+package com.foo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.support.MapJobRegistry;
+import org.springframework.batch.core.configuration.support.ReferenceJobFactory;
+import org.springframework.batch.core.converter.DefaultJobParametersConverter;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.launch.support.SimpleJobOperator;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link JobSyncRunnable} tick against the postgres job repository, wired like BatchConfiguration
+ * (fenced repository, fencing incrementer).
+ * <ul>
+ *     <li>lastExecution=running : the tick finds the last execution still running and quits</li>
+ *     <li>lastExecution=done : the tick launches the next instance of an empty job. The job runs on the calling thread
+ *     so that the metadata writes of the launch are measured too. It has ended by the time the tick marks it as
+ *     launched, which the cache ignores, so the next tick launches again</li>
+ *     <li>cached=false : {@link JobExecutionStateCache} is invalidated before every tick, as after a change of
+ *     ownership, so the tick goes to the job repository</li>
+ * </ul>
+ * Runs in a schema of its own (datasync_bench_tick), see {@link BenchmarkDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JobSyncTickBenchmark {
+
+    private static final String JOB_NAME = "bench-job";
+
+    @Param({"running", "done"})
+    private String lastExecution;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private HikariDataSource dataSource;
+    private InMemoryJobCoordinator jobCoordinator;
+    private JobLaunchExecutor jobLaunchExecutor;
+    private JobExecutionStateCache jobExecutionStateCache;
+    private JobSyncRunnable jobSyncRunnable;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDataSource.create("datasync_bench_tick");
+        BenchmarkDataSource.truncate(dataSource, "BATCH_STEP_EXECUTION_CONTEXT", "BATCH_STEP_EXECUTION",
+                "BATCH_JOB_EXECUTION_CONTEXT", "BATCH_JOB_EXECUTION_PARAMS", "BATCH_JOB_EXECUTION",
+                "BATCH_JOB_INSTANCE");
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jobCoordinator = new InMemoryJobCoordinator("bench-owner", new InMemoryLockTable(), 0, 0);
+        jobCoordinator.registerJob(JOB_NAME, true);
+        jobExecutionStateCache = new JobExecutionStateCache();
+        jobLaunchExecutor = new JobLaunchExecutor();
+        BenchmarkBeans.inject(jobLaunchExecutor, "initialPoolSize", 1);
+        BenchmarkBeans.inject(jobLaunchExecutor, "queueCapacity", 10);
+        jobLaunchExecutor.init();
+
+        JobRepositoryFactoryBean repositoryFactory = new JobRepositoryFactoryBean();
+        repositoryFactory.setDataSource(dataSource);
+        repositoryFactory.setTransactionManager(transactionManager);
+        repositoryFactory.setIsolationLevelForCreate("ISOLATION_READ_UNCOMMITTED");
+        repositoryFactory.afterPropertiesSet();
+        JobRepository unfencedJobRepository = repositoryFactory.getObject();
+        JobRepository jobRepository = new FencedJobRepository(unfencedJobRepository, jobCoordinator,
+                new RemotePartitionRegistry());
+        JobExplorerFactoryBean explorerFactory = new JobExplorerFactoryBean();
+        explorerFactory.setDataSource(dataSource);
+        explorerFactory.afterPropertiesSet();
+        JobExplorer jobExplorer = explorerFactory.getObject();
+
+        Job job = new JobBuilderFactory(jobRepository).get(JOB_NAME)
+                .incrementer(new FencingJobParametersIncrementer(JOB_NAME, jobCoordinator))
+                .listener(jobExecutionStateCache)
+                .start(new StepBuilderFactory(jobRepository, transactionManager).get("bench-step")
+                        .tasklet((contribution, chunkContext) -> RepeatStatus.FINISHED)
+                        .build())
+                .build();
+        MapJobRegistry jobRegistry = new MapJobRegistry();
+        jobRegistry.register(new ReferenceJobFactory(job));
+        SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.setTaskExecutor(new SyncTaskExecutor());
+        jobLauncher.afterPropertiesSet();
+        SimpleJobOperator jobOperator = new SimpleJobOperator();
+        jobOperator.setJobLauncher(jobLauncher);
+        jobOperator.setJobParametersConverter(new DefaultJobParametersConverter());
+        jobOperator.setJobRepository(jobRepository);
+        jobOperator.setJobExplorer(jobExplorer);
+        jobOperator.setJobRegistry(jobRegistry);
+        jobOperator.afterPropertiesSet();
+
+        // one completed run to start from
+        Long completedId = jobOperator.startNextInstance(JOB_NAME);
+        if ("running".equals(lastExecution)) {
+            JobExecution running = unfencedJobRepository.createJobExecution(JOB_NAME,
+                    new FencingJobParametersIncrementer(JOB_NAME, jobCoordinator)
+                            .getNext(jobExplorer.getJobExecution(completedId).getJobParameters()));
+            running.setStatus(BatchStatus.STARTED);
+            running.setStartTime(new Date());
+            unfencedJobRepository.update(running);
+            // as if this instance had launched it
+            jobExecutionStateCache.launched(JOB_NAME, running.getId());
+        }
+        jobSyncRunnable = new JobSyncRunnable(JOB_NAME, jobExplorer, jobOperator, unfencedJobRepository,
+                jobCoordinator, jobExecutionStateCache, jobLaunchExecutor);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jobLaunchExecutor.shutdown();
+        jobCoordinator.cleanup();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void tick() {
+        if (!cached) {
+            jobExecutionStateCache.invalidate(JOB_NAME);
+        }
+        jobSyncRunnable.run();
+    }
+}
@@ -0,0 +1,226 @@
+package com.foo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.ExecutionContextDao;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Job repository cost of one run of a short chunk job (10 chunks of 10 items, nothing read or written outside the
+ * job repository), in repository.mode full and lightweight. The job is ephemeral in lightweight mode.
+ * <p>
+ * The round trips to postgres (statements executed, commits and rollbacks) per run are reported along with the time,
+ * see {@link RoundTrips}. Runs in a schema of its own (datasync_bench_repository), see {@link BenchmarkDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryRoundTripBenchmark {
+
+    private static final String JOB_NAME = "bench-job";
+    private static final int CHUNKS = 10;
+    private static final int CHUNK_SIZE = 10;
+    private static final List<Integer> ITEMS = IntStream.range(0, CHUNKS * CHUNK_SIZE).boxed()
+            .collect(Collectors.toList());
+
+    @Param({"full", BatchConfiguration.LIGHTWEIGHT_REPOSITORY})
+    private String mode;
+
+    private HikariDataSource dataSource;
+    private RoundTripCountingDataSource countingDataSource;
+    private JobBuilderFactory jobBuilderFactory;
+    private StepBuilderFactory stepBuilderFactory;
+    private SimpleJobLauncher jobLauncher;
+    private long runs;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDataSource.create("datasync_bench_repository");
+        BenchmarkDataSource.truncate(dataSource, "BATCH_STEP_EXECUTION_CONTEXT", "BATCH_STEP_EXECUTION",
+                "BATCH_JOB_EXECUTION_CONTEXT", "BATCH_JOB_EXECUTION_PARAMS", "BATCH_JOB_EXECUTION",
+                "BATCH_JOB_INSTANCE");
+        countingDataSource = new RoundTripCountingDataSource(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(countingDataSource);
+
+        Set<String> ephemeralJobs = Set.of(JOB_NAME);
+        boolean lightweight = BatchConfiguration.LIGHTWEIGHT_REPOSITORY.equals(mode);
+        ContextDaoJobRepositoryFactoryBean<ExecutionContextDao> repositoryFactory =
+                new ContextDaoJobRepositoryFactoryBean<>(null, lightweight
+                        ? dao -> new LightweightExecutionContextDao(dao, ephemeralJobs) : Function.identity());
+        repositoryFactory.setDataSource(countingDataSource);
+        repositoryFactory.setTransactionManager(transactionManager);
+        repositoryFactory.setIsolationLevelForCreate("ISOLATION_READ_UNCOMMITTED");
+        repositoryFactory.afterPropertiesSet();
+        JobRepository jobRepository = repositoryFactory.getObject();
+        if (lightweight) {
+            jobRepository = new LightweightJobRepository(jobRepository,
+                    (LightweightExecutionContextDao) repositoryFactory.getExecutionContextDao(), ephemeralJobs);
+        }
+
+        jobBuilderFactory = new JobBuilderFactory(jobRepository);
+        stepBuilderFactory = new StepBuilderFactory(jobRepository, transactionManager);
+        jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.setTaskExecutor(new SyncTaskExecutor());
+        jobLauncher.afterPropertiesSet();
+        runs = 0;
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounts() {
+        countingDataSource.reset();
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public BatchStatus run(RoundTrips roundTrips) throws Exception {
+        // built for every run, the reader keeps its position
+        Job job = jobBuilderFactory.get(JOB_NAME)
+                .start(stepBuilderFactory.get("bench-step")
+                        .<Integer, Integer>chunk(CHUNK_SIZE)
+                        .reader(new ListItemReader<>(ITEMS))
+                        .writer(items -> {
+                        })
+                        .build())
+                .build();
+        JobExecution jobExecution = jobLauncher.run(job, new JobParametersBuilder()
+                .addLong("run.id", ++runs)
+                .toJobParameters());
+        roundTrips.runs++;
+        return jobExecution.getStatus();
+    }
+
+    /**
+     * Round trips per run of the iteration, as secondary results of the benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+
+        private long runs;
+        private RoundTripCountingDataSource countingDataSource;
+
+        @Setup(Level.Iteration)
+        public void reset(RepositoryRoundTripBenchmark benchmark) {
+            runs = 0;
+            countingDataSource = benchmark.countingDataSource;
+        }
+
+        public double statementsPerRun() {
+            return perRun(countingDataSource.statements);
+        }
+
+        public double commitsPerRun() {
+            return perRun(countingDataSource.commits);
+        }
+
+        public double rollbacksPerRun() {
+            return perRun(countingDataSource.rollbacks);
+        }
+
+        private double perRun(AtomicLong count) {
+            return runs == 0 ? 0 : count.get() / (double) runs;
+        }
+    }
+
+    /**
+     * Counts the statements executed, the commits and the rollbacks on its connections.
+     */
+    private static class RoundTripCountingDataSource extends DelegatingDataSource {
+
+        private final AtomicLong statements = new AtomicLong();
+        private final AtomicLong commits = new AtomicLong();
+        private final AtomicLong rollbacks = new AtomicLong();
+
+        RoundTripCountingDataSource(HikariDataSource dataSource) {
+            super(dataSource);
+        }
+
+        void reset() {
+            statements.set(0);
+            commits.set(0);
+            rollbacks.set(0);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("commit".equals(method.getName())) {
+                            commits.incrementAndGet();
+                        } else if ("rollback".equals(method.getName())) {
+                            rollbacks.incrementAndGet();
+                        }
+                        Object result = invoke(connection, method, args);
+                        return result instanceof Statement ? counting(result, method.getReturnType()) : result;
+                    });
+        }
+
+        // statementType : Statement, PreparedStatement or CallableStatement, as declared by the Connection method
+        private Object counting(Object statement, Class<?> statementType) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{statementType},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            statements.incrementAndGet();
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.foo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole staging path of a trade-ETL run into a table that already holds the previous run, chunk by chunk in chunk
+ * transactions: COPY into the load table followed by the merge of the trade-merge step, against batched upserts
+ * straight into STAGED_TRADE. Needs a local postgres, see {@link BenchmarkDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class StagingLoadBenchmark {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final List<String> TRADE_COLUMNS =
+            List.of("TRADE_ID", "BUSINESS_DATE", "INSTRUMENT", "QUANTITY", "PRICE", "LAST_UPDATED");
+
+    @Param({"100000"})
+    private int rows;
+
+    private HikariDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private List<Map<String, Object>> trades;
+    private PostgresCopyItemWriter<Map<String, Object>> copyWriter;
+    private JdbcBatchItemWriter<Map<String, Object>> upsertWriter;
+    private StagingMergeTasklet mergeTasklet;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDataSource.create();
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        trades = BenchmarkDataSource.trades(1, rows);
+        copyWriter = new PostgresCopyItemWriter<>(dataSource, "STAGED_TRADE_LOAD", TRADE_COLUMNS,
+                item -> TRADE_COLUMNS.stream().map(item::get).toArray());
+        upsertWriter = new JdbcBatchItemWriterBuilder<Map<String, Object>>()
+                .dataSource(dataSource)
+                .sql("INSERT INTO STAGED_TRADE (TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, PRICE, LAST_UPDATED) "
+                        + "VALUES (:trade_id, :business_date, :instrument, :quantity, :price, :last_updated) "
+                        + "ON CONFLICT (TRADE_ID) DO UPDATE SET BUSINESS_DATE = EXCLUDED.BUSINESS_DATE, "
+                        + "INSTRUMENT = EXCLUDED.INSTRUMENT, QUANTITY = EXCLUDED.QUANTITY, PRICE = EXCLUDED.PRICE, "
+                        + "LAST_UPDATED = EXCLUDED.LAST_UPDATED")
+                .itemSqlParameterSourceProvider(MapSqlParameterSource::new)
+                .build();
+        upsertWriter.afterPropertiesSet();
+        mergeTasklet = new StagingMergeTasklet(new JdbcTemplate(dataSource), EtlConfiguration.MERGE_TRADES,
+                "STAGED_TRADE_LOAD");
+    }
+
+    // half of the rows are already staged, as after the previous run
+    @Setup(Level.Iteration)
+    public void stagePreviousRun() {
+        BenchmarkDataSource.truncate(dataSource, "STAGED_TRADE_LOAD", "STAGED_TRADE");
+        writeInChunks(upsertWriter, trades.subList(0, rows / 2));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void copyAndMerge() {
+        writeInChunks(copyWriter, trades);
+        StepExecution stepExecution = new JobExecution(new JobInstance(0L, "trade-job"), new JobParameters())
+                .createStepExecution("trade-merge");
+        transactionTemplate.execute(status -> mergeTasklet.execute(new StepContribution(stepExecution),
+                new ChunkContext(new StepContext(stepExecution))));
+    }
+
+    @Benchmark
+    public void batchedUpsert() {
+        writeInChunks(upsertWriter, trades);
+    }
+
+    private void writeInChunks(ItemWriter<Map<String, Object>> writer,
+                               List<Map<String, Object>> items) {
+        for (int from = 0; from < items.size(); from += CHUNK_SIZE) {
+            List<Map<String, Object>> chunk = items.subList(from, Math.min(items.size(), from + CHUNK_SIZE));
+            transactionTemplate.execute(status -> {
+                try {
+                    writer.write(chunk);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.foo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write one chunk of trades in its own transaction, the way a chunk step does:
+ * <ul>
+ *     <li>copyIntoLoadTable : {@link PostgresCopyItemWriter} into the unlogged load table
+ *     (etl.staging.writer=copy)</li>
+ *     <li>insertIntoLoadTable : batched INSERT into the same table, to compare the protocols alone</li>
+ *     <li>upsertIntoStagedTable : batched upsert into STAGED_TRADE (etl.staging.writer=insert)</li>
+ * </ul>
+ * Needs a local postgres, see {@link BenchmarkDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StagingWriterBenchmark {
+
+    private static final List<String> TRADE_COLUMNS =
+            List.of("TRADE_ID", "BUSINESS_DATE", "INSTRUMENT", "QUANTITY", "PRICE", "LAST_UPDATED");
+
+    @Param({"500", "5000"})
+    private int chunkSize;
+
+    private HikariDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private List<Map<String, Object>> chunk;
+    private ItemWriter<Map<String, Object>> copyWriter;
+    private ItemWriter<Map<String, Object>> insertWriter;
+    private ItemWriter<Map<String, Object>> upsertWriter;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDataSource.create();
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        chunk = BenchmarkDataSource.trades(1, chunkSize);
+        copyWriter = new PostgresCopyItemWriter<>(dataSource, "STAGED_TRADE_LOAD", TRADE_COLUMNS,
+                item -> TRADE_COLUMNS.stream().map(item::get).toArray());
+        insertWriter = batchWriter("INSERT INTO STAGED_TRADE_LOAD (TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, "
+                + "PRICE, LAST_UPDATED) VALUES (:trade_id, :business_date, :instrument, :quantity, :price, "
+                + ":last_updated)");
+        upsertWriter = batchWriter("INSERT INTO STAGED_TRADE (TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, PRICE, "
+                + "LAST_UPDATED) VALUES (:trade_id, :business_date, :instrument, :quantity, :price, :last_updated) "
+                + "ON CONFLICT (TRADE_ID) DO UPDATE SET BUSINESS_DATE = EXCLUDED.BUSINESS_DATE, "
+                + "INSTRUMENT = EXCLUDED.INSTRUMENT, QUANTITY = EXCLUDED.QUANTITY, PRICE = EXCLUDED.PRICE, "
+                + "LAST_UPDATED = EXCLUDED.LAST_UPDATED");
+    }
+
+    private ItemWriter<Map<String, Object>> batchWriter(String sql) throws Exception {
+        JdbcBatchItemWriter<Map<String, Object>> writer =
+                new JdbcBatchItemWriterBuilder<Map<String, Object>>()
+                        .dataSource(dataSource)
+                        .sql(sql)
+                        .itemSqlParameterSourceProvider(MapSqlParameterSource::new)
+                        .build();
+        writer.afterPropertiesSet();
+        return writer;
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        BenchmarkDataSource.truncate(dataSource, "STAGED_TRADE_LOAD", "STAGED_TRADE");
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void copyIntoLoadTable() {
+        write(copyWriter);
+    }
+
+    @Benchmark
+    public void insertIntoLoadTable() {
+        write(insertWriter);
+    }
+
+    @Benchmark
+    public void upsertIntoStagedTable() {
+        write(upsertWriter);
+    }
+
+    private void write(ItemWriter<Map<String, Object>> writer) {
+        transactionTemplate.execute(status -> {
+            try {
+                writer.write(chunk);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,142 @@
+package com.foo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Start-up lock acquisition of {@link SyncScheduler#initialize()} against the in-memory lock backend, with a simulated
+ * round trip per lock call, against lock.acquisition.parallelism. Half of the jobs are held by a peer, so the
+ * acquisition goes through the retries too. The task scheduler is a stub, the jobs are released after every invocation.
+ * <p>
+ * placement=rendezvous : the peer has a member record and holds the jobs it is the preferred owner of, as after a
+ * start-up of both with {@link JobPlacement}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SyncSchedulerBenchmark {
+
+    @Param({"0", "5"})
+    private long latencyMillis;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"shuffle", JobPlacement.RENDEZVOUS})
+    private String placement;
+
+    private InMemoryJobCoordinator jobCoordinator;
+    private InMemoryJobCoordinator peerCoordinator;
+    private SyncScheduler syncScheduler;
+    private List<String> peerJobs;
+
+    @Setup
+    public void setUp() throws Exception {
+        InMemoryLockTable lockTable = new InMemoryLockTable();
+        jobCoordinator = new InMemoryJobCoordinator("bench-owner", lockTable, latencyMillis, 0);
+        peerCoordinator = new InMemoryJobCoordinator("bench-peer", lockTable, 0, 0);
+        StandardEnvironment environment = new StandardEnvironment();
+
+        TokenBudget tokenBudget = new TokenBudget();
+        BenchmarkBeans.inject(tokenBudget, "tokens", BatchConfiguration.jobs.size());
+        BenchmarkBeans.inject(tokenBudget, "mode", "count");
+        BenchmarkBeans.inject(tokenBudget, "environment", environment);
+        tokenBudget.init();
+
+        JobLaunchExecutor jobLaunchExecutor = new JobLaunchExecutor();
+        BenchmarkBeans.inject(jobLaunchExecutor, "initialPoolSize", 4);
+        BenchmarkBeans.inject(jobLaunchExecutor, "queueCapacity", 10);
+        jobLaunchExecutor.init();
+
+        JobExecutionStateCache jobExecutionStateCache = new JobExecutionStateCache();
+        JobScheduleFactory jobScheduleFactory = new JobScheduleFactory();
+        BenchmarkBeans.inject(jobScheduleFactory, "environment", environment);
+        BenchmarkBeans.inject(jobScheduleFactory, "jobExecutionStateCache", jobExecutionStateCache);
+
+        // never run, the task scheduler is a stub
+        JobExplorer jobExplorer = BenchmarkBeans.stub(JobExplorer.class);
+        TaskScheduler taskScheduler = BenchmarkBeans.stub(TaskScheduler.class);
+        Function<String, JobSyncRunnable> jobSyncRunnableFactory = job -> new JobSyncRunnable(job, jobExplorer, null,
+                null, jobCoordinator, jobExecutionStateCache, jobLaunchExecutor);
+        JobPlacement jobPlacement = new JobPlacement();
+        BenchmarkBeans.inject(jobPlacement, "placement", placement);
+        BenchmarkBeans.inject(jobPlacement, "settleMillis", 0L);
+        BenchmarkBeans.inject(jobPlacement, "staleAfterSeconds", TimeUnit.HOURS.toSeconds(1));
+        BenchmarkBeans.inject(jobPlacement, "jobCoordinator", jobCoordinator);
+        BenchmarkBeans.inject(jobPlacement, "tokenBudget", tokenBudget);
+        if (jobPlacement.isRendezvous()) {
+            PodLoad peerLoad = new PodLoad();
+            peerLoad.setOwner(peerCoordinator.getOwnerName());
+            peerLoad.setPublishedAt(System.currentTimeMillis());
+            peerCoordinator.advertise(new ObjectMapper().writeValueAsBytes(peerLoad));
+            List<String> members = List.of(jobCoordinator.getOwnerName(), peerCoordinator.getOwnerName());
+            peerJobs = BatchConfiguration.jobs.stream()
+                    .filter(job -> peerCoordinator.getOwnerName().equals(JobPlacement.preferredOwner(job, members)))
+                    .collect(Collectors.toList());
+        } else {
+            peerJobs = IntStream.range(0, BatchConfiguration.jobs.size())
+                    .filter(i -> i % 2 == 0)
+                    .mapToObj(BatchConfiguration.jobs::get)
+                    .collect(Collectors.toList());
+        }
+
+        syncScheduler = new SyncScheduler();
+        BenchmarkBeans.inject(syncScheduler, "tokenBudget", tokenBudget);
+        BenchmarkBeans.inject(syncScheduler, "taskScheduler", taskScheduler);
+        BenchmarkBeans.inject(syncScheduler, "jobCoordinator", jobCoordinator);
+        BenchmarkBeans.inject(syncScheduler, "jobExplorer", jobExplorer);
+        BenchmarkBeans.inject(syncScheduler, "jobLaunchExecutor", jobLaunchExecutor);
+        BenchmarkBeans.inject(syncScheduler, "jobScheduleFactory", jobScheduleFactory);
+        BenchmarkBeans.inject(syncScheduler, "jobSyncRunnableBeanFactory", jobSyncRunnableFactory);
+        BenchmarkBeans.inject(syncScheduler, "parallelism", parallelism);
+        BenchmarkBeans.inject(syncScheduler, "shuffleJobs", true);
+        BenchmarkBeans.inject(syncScheduler, "jobPlacement", jobPlacement);
+    }
+
+    @Setup(Level.Invocation)
+    public void holdByPeer() {
+        for (String job : peerJobs) {
+            peerCoordinator.registerJob(job, true);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseAll() {
+        for (String job : syncScheduler.getScheduledJobs()) {
+            syncScheduler.releaseJob(job);
+        }
+        for (String job : peerCoordinator.getHeldJobs()) {
+            peerCoordinator.unregisterJob(job);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jobCoordinator.cleanup();
+        peerCoordinator.cleanup();
+    }
+
+    @Benchmark
+    public long initialize() {
+        syncScheduler.initialize();
+        return syncScheduler.getAcquisitionMillis();
+    }
+}
@@ -1,5 +1,9 @@
 package com.foo;
 
+import com.foo.config.JobEventListener;
+import com.foo.config.LockRebalancer;
+import com.foo.config.RemotePartitionWorker;
+import com.foo.config.SchedulerWatchdog;
 import com.foo.config.SyncScheduler;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.boot.SpringApplication;
@@ -15,5 +19,9 @@ public class ScalePocApplication {
         ConfigurableApplicationContext applicationContext = SpringApplication.run(ScalePocApplication.class, args);
         SyncScheduler syncScheduler = applicationContext.getBean(SyncScheduler.class);
         syncScheduler.initialize();
+        applicationContext.getBean(LockRebalancer.class).start();
+        applicationContext.getBean(RemotePartitionWorker.class).start();
+        applicationContext.getBean(SchedulerWatchdog.class).start();
+        applicationContext.getBean(JobEventListener.class).start();
     }
 }
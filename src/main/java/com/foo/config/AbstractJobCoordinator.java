@@ -0,0 +1,215 @@
+package com.foo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.foo.config.DynamoDbConfiguration.DYNAMO_DB_HEARTBEAT_PERIOD_IN_SECONDS;
+
+/**
+ * Lease fences and heart beats common to all the lock backends. The heart beat pushes the {@link LeaseFence} of a
+ * job forward every time the backend confirms the lease, so the hot paths never have to talk to the backend.
+ * <p>
+ * Metrics : {@code batch.lock.acquire}, {@code batch.lock.release} and {@code batch.lock.heartbeat} timers tagged
+ * with the outcome, and {@code batch.lock.lease.remaining} per job. A heart beat lagging behind shows up as the
+ * remaining lease going down to 0 instead of staying around the lease duration.
+ */
+public abstract class AbstractJobCoordinator implements JobCoordinator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractJobCoordinator.class);
+
+    private final String ownerName;
+
+    private final ConcurrentHashMap<String, LeaseFence> jobNameToLeaseFenceMap =
+            new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LOCK-HEARTBEAT");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected AbstractJobCoordinator(String ownerName) {
+        this.ownerName = ownerName;
+    }
+
+    /**
+     * Tries to take the lock.
+     *
+     * @return fence of the new lease. null if the lease of the lock is still live, whoever holds it
+     */
+    protected abstract LeaseFence acquire(String jobName, boolean skipBlockingWait);
+
+    /**
+     * Renews the lease of a lock held.
+     *
+     * @return new deadline of the lease as a {@link System#nanoTime()} value. null if the lock is lost
+     */
+    protected abstract Long renew(String jobName);
+
+    protected abstract void release(String jobName);
+
+    /**
+     * Renews the member record published by {@link #advertise(byte[])}, if any.
+     */
+    protected abstract void renewMember();
+
+    /**
+     * Releases everything still held and closes the connection to the backend.
+     */
+    protected abstract void close() throws Exception;
+
+    /**
+     * @return a description of the lock held for the job, for logging
+     */
+    protected abstract String describe(String jobName);
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeatExecutor.scheduleWithFixedDelay(this::sendHeartbeats,
+                DYNAMO_DB_HEARTBEAT_PERIOD_IN_SECONDS, DYNAMO_DB_HEARTBEAT_PERIOD_IN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public boolean registerJob(String jobName, boolean skipBlockingWait) {
+        long start = System.nanoTime();
+        LeaseFence leaseFence;
+        try {
+            leaseFence = acquire(jobName, skipBlockingWait);
+        } catch (RuntimeException e) {
+            lockTimer("batch.lock.acquire", jobName, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        lockTimer("batch.lock.acquire", jobName, leaseFence == null ? "held" : "acquired")
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (leaseFence == null) {
+            LOGGER.info("Unable to acquire lock for {}", jobName);
+            return false;
+        }
+        LOGGER.info("Lock acquired for {} with fencing token {}", jobName, leaseFence.getFencingToken());
+        jobNameToLeaseFenceMap.put(jobName, leaseFence);
+        // registered once per job, the gauge reads whatever fence is current
+        Gauge.builder("batch.lock.lease.remaining", this,
+                coordinator -> Math.max(0, coordinator.getLeaseFence(jobName).remainingNanos()) / 1e9)
+                .tag("job", jobName)
+                .baseUnit("seconds")
+                .description("Time left on the lease of the job, 0 when the lock is not held")
+                .register(Metrics.globalRegistry);
+        return true;
+    }
+
+    @Override
+    public boolean canContinue(String jobName) {
+        if (getLeaseFence(jobName).isValid()) {
+            return true;
+        }
+        // Intentionally not removing the expired lock. They will be overridden when new lock is
+        // acquired for the same jobName.
+        // that way you are avoiding concurrent access.
+        if (!jobNameToLeaseFenceMap.containsKey(jobName)) {
+            LOGGER.error("Lock is not present for {}", jobName);
+        } else {
+            LOGGER.error("Lock expired for {}. {}", jobName, describe(jobName));
+        }
+        return false;
+    }
+
+    @Override
+    public LeaseFence getLeaseFence(String jobName) {
+        LeaseFence leaseFence = jobNameToLeaseFenceMap.get(jobName);
+        return leaseFence == null ? LeaseFence.REVOKED : leaseFence;
+    }
+
+    @Override
+    public void unregisterJob(String jobName) {
+        LeaseFence leaseFence = jobNameToLeaseFenceMap.remove(jobName);
+        if (leaseFence == null) {
+            LOGGER.warn("Lock was not held for {}. Someone unregistered the Job before this call, which should never "
+                    + "happen", jobName);
+            return;
+        }
+        leaseFence.revoke();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            release(jobName);
+            outcome = "released";
+        } finally {
+            lockTimer("batch.lock.release", jobName, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Set<String> getHeldJobs() {
+        return Collections.unmodifiableSet(jobNameToLeaseFenceMap.keySet());
+    }
+
+    @Override
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    private void sendHeartbeats() {
+        for (Map.Entry<String, LeaseFence> entry : jobNameToLeaseFenceMap.entrySet()) {
+            String jobName = entry.getKey();
+            LeaseFence leaseFence = entry.getValue();
+            long start = System.nanoTime();
+            String outcome;
+            try {
+                Long deadlineNanos = renew(jobName);
+                if (deadlineNanos == null) {
+                    LOGGER.error("Lost the lock for {}. {}", jobName, describe(jobName));
+                    leaseFence.revoke();
+                    outcome = "lost";
+                } else {
+                    leaseFence.extend(deadlineNanos);
+                    outcome = "renewed";
+                }
+            } catch (RuntimeException e) {
+                // the fence runs out by itself if this keeps failing till the lease duration
+                LOGGER.warn("Unable to send heart beat for {}", jobName, e);
+                outcome = "error";
+            }
+            lockTimer("batch.lock.heartbeat", jobName, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        try {
+            renewMember();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to send heart beat for the member record of {}", ownerName, e);
+            Counter.builder("batch.lock.member.heartbeat.failures")
+                    .register(Metrics.globalRegistry)
+                    .increment();
+        }
+    }
+
+    private Timer lockTimer(String name, String jobName, String outcome) {
+        return Timer.builder(name)
+                .tag("job", jobName)
+                .tag("outcome", outcome)
+                .tag("backend", getClass().getSimpleName())
+                .register(Metrics.globalRegistry);
+    }
+
+    @PreDestroy
+    public void cleanup() throws Exception {
+        LOGGER.info("Cleaning up locks held");
+        heartbeatExecutor.shutdownNow();
+        for (LeaseFence leaseFence : jobNameToLeaseFenceMap.values()) {
+            leaseFence.revoke();
+        }
+        close();
+    }
+}
@@ -0,0 +1,58 @@
+package com.foo.config;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+
+import java.util.Date;
+
+/**
+ * Fixed delay trigger whose delay halves, down to the minimum, after a run that found data and doubles, up to the
+ * maximum, after a run that did not. Each completed run is taken into account once.
+ * <p>
+ * Runs are launched asynchronously, so the tick that launched a run is usually done before the run is. While a run is
+ * in flight, the trigger checks back after the minimum delay, and the delay is counted from the end of the run once
+ * its outcome is known. That way the delay follows the outcome of the last run rather than of the one before it.
+ */
+public class AdaptiveTrigger implements Trigger {
+
+    private final String jobName;
+    private final JobExecutionStateCache jobExecutionStateCache;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+
+    private long delayMillis;
+    private long lastSeenCompletedRuns;
+
+    public AdaptiveTrigger(String jobName, JobExecutionStateCache jobExecutionStateCache,
+                           long minDelayMillis, long maxDelayMillis) {
+        this.jobName = jobName;
+        this.jobExecutionStateCache = jobExecutionStateCache;
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.delayMillis = minDelayMillis;
+    }
+
+    @Override
+    public synchronized Date nextExecutionTime(TriggerContext triggerContext) {
+        Date lastCompletion = triggerContext.lastCompletionTime();
+        if (lastCompletion == null) {
+            return new Date();
+        }
+        long lastRunCompletionMillis = jobExecutionStateCache.getLastCompletionMillis(jobName);
+        if (jobExecutionStateCache.getLastLaunchMillis(jobName) > lastRunCompletionMillis) {
+            return new Date(lastCompletion.getTime() + minDelayMillis);
+        }
+        long completedRuns = jobExecutionStateCache.getCompletedRuns(jobName);
+        if (completedRuns != lastSeenCompletedRuns) {
+            lastSeenCompletedRuns = completedRuns;
+            delayMillis = jobExecutionStateCache.lastRunFoundData(jobName)
+                    ? Math.max(minDelayMillis, delayMillis / 2)
+                    : Math.min(maxDelayMillis, delayMillis * 2);
+        }
+        return new Date(Math.max(lastCompletion.getTime(), lastRunCompletionMillis) + delayMillis);
+    }
+
+    public synchronized long getDelayMillis() {
+        return delayMillis;
+    }
+}
@@ -3,6 +3,9 @@ package com.foo.config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.JobParametersIncrementer;
+import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.JobRegistry;
 import org.springframework.batch.core.configuration.annotation.DefaultBatchConfigurer;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
@@ -10,27 +13,32 @@ import org.springframework.batch.core.configuration.annotation.StepBuilderFactor
 import org.springframework.batch.core.configuration.support.JobRegistryBeanPostProcessor;
 import org.springframework.batch.core.converter.DefaultJobParametersConverter;
 import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.launch.JobOperator;
-import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.launch.support.SimpleJobLauncher;
 import org.springframework.batch.core.launch.support.SimpleJobOperator;
 import org.springframework.batch.core.repository.JobRepository;
-import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.repository.dao.ExecutionContextDao;
 import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.task.TaskSchedulerCustomizer;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.sql.DataSource;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.springframework.beans.factory.config.ConfigurableBeanFactory.SCOPE_PROTOTYPE;
 
@@ -43,10 +51,30 @@ public class BatchConfiguration extends DefaultBatchConfigurer implements Applic
     */
     private static final Logger LOGGER = LoggerFactory.getLogger(BatchConfiguration.class);
     private static final String MONITORING_JOB = "monitoring-job";
-    private static final String PUBLISHER_JOB = "publisher-job";
-    private static final String TRADE_JOB = "trade-job";
-    private static final String PRICE_JOB = "price-job";
+    static final String PUBLISHER_JOB = "publisher-job";
+    static final String TRADE_JOB = "trade-job";
+    static final String PRICE_JOB = "price-job";
+    static final String LIGHTWEIGHT_REPOSITORY = "lightweight";
+    static final String CBOR_CONTEXT = "cbor";
     public static final List<String> jobs = List.of(MONITORING_JOB, PUBLISHER_JOB, TRADE_JOB, PRICE_JOB);
+    // default size class per job. can be overridden with job.size.<jobName>
+    public static final Map<String, JobSize> jobSizes = Map.of(
+            MONITORING_JOB, JobSize.S,
+            PUBLISHER_JOB, JobSize.M,
+            TRADE_JOB, JobSize.L,
+            PRICE_JOB, JobSize.L);
+    // job -> the jobs whose output it consumes. A run of an upstream job that wrote anything triggers its downstream
+    // jobs right away, on whichever instance holds them. See JobCompletionEvents.
+    // publisher-job reads STAGED_TRADE only
+    public static final Map<String, List<String>> jobDependencies = Map.of(
+            PUBLISHER_JOB, List.of(TRADE_JOB));
+
+    public static List<String> downstreamOf(String jobName) {
+        return jobDependencies.entrySet().stream()
+                .filter(entry -> entry.getValue().contains(jobName))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
 
     @Autowired
     private JobBuilderFactory jobBuilderFactory;
@@ -70,13 +98,16 @@ public class BatchConfiguration extends DefaultBatchConfigurer implements Applic
     private JobOperator jobOperator;
 
     @Autowired
-    private DynamoDBJobCoordinator dynamoDBJobCoordinator;
+    private JobCoordinator jobCoordinator;
 
     private ApplicationContext applicationContext;
 
     @Autowired
     private ChunkListener chunkListener;
 
+    @Autowired
+    private JobExecutionStateCache jobExecutionStateCache;
+
     @Bean // to register the job into the registry
     public JobRegistryBeanPostProcessor jobRegistryBeanPostProcessor() throws Exception {
         JobRegistryBeanPostProcessor jobRegistryBeanPostProcessor = new JobRegistryBeanPostProcessor();
@@ -101,11 +132,14 @@ public class BatchConfiguration extends DefaultBatchConfigurer implements Applic
         return simpleJobOperator;
     }
 
+    @Autowired
+    private JobLaunchExecutor jobLaunchExecutor;
+
     @Override
     public JobLauncher getJobLauncher() {
         SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
         jobLauncher.setJobRepository(this.jobRepository);
-        jobLauncher.setTaskExecutor(new SimpleAsyncTaskExecutor("EXEC-JL-"));
+        jobLauncher.setTaskExecutor(jobLaunchExecutor);
         try {
             jobLauncher.afterPropertiesSet();
         } catch (Exception e) {
@@ -117,17 +151,78 @@ public class BatchConfiguration extends DefaultBatchConfigurer implements Applic
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private RemotePartitionRegistry remotePartitionRegistry;
+
+    // full or lightweight, see LightweightJobRepository
+    @Value("${repository.mode:full}")
+    private String repositoryMode;
+
+    @Value("${repository.ephemeral-jobs:}")
+    private String[] ephemeralJobs;
+
+    // json (spring batch default), or cbor : binary, see BinaryExecutionContextDao
+    @Value("${repository.context-format:json}")
+    private String contextFormat;
+
+    @Value("${repository.context-compress-above-bytes:1024}")
+    private int contextCompressAboveBytes;
+
+    // job repository without fencing. Used when taking over the executions of other owners.
+    private JobRepository unfencedJobRepository;
+
     @Override
     protected JobRepository createJobRepository() throws Exception {
-        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        if (!LIGHTWEIGHT_REPOSITORY.equals(repositoryMode)) {
+            unfencedJobRepository = jdbcJobRepositoryFactory(Function.identity()).getObject();
+            return new FencedJobRepository(unfencedJobRepository, jobCoordinator, remotePartitionRegistry);
+        }
+        Set<String> ephemeral = Set.of(ephemeralJobs);
+        LOGGER.info("Lightweight job repository for {}", ephemeral);
+        ContextDaoJobRepositoryFactoryBean<LightweightExecutionContextDao> factory =
+                jdbcJobRepositoryFactory(delegate -> new LightweightExecutionContextDao(delegate, ephemeral));
+        unfencedJobRepository = new LightweightJobRepository(factory.getObject(), factory.getExecutionContextDao(),
+                ephemeral);
+        return new FencedJobRepository(unfencedJobRepository, jobCoordinator, remotePartitionRegistry);
+    }
+
+    private <D extends ExecutionContextDao> ContextDaoJobRepositoryFactoryBean<D> jdbcJobRepositoryFactory(
+            Function<ExecutionContextDao, D> executionContextDao) throws Exception {
+        ContextDaoJobRepositoryFactoryBean<D> factory = new ContextDaoJobRepositoryFactoryBean<>(
+                isBinaryContext() ? this::binaryExecutionContextDao : null, executionContextDao);
         factory.setDataSource(dataSource);
         factory.setTransactionManager(getTransactionManager());
         // https://github.com/spring-projects/spring-batch/issues/1127
         factory.setIsolationLevelForCreate("ISOLATION_READ_UNCOMMITTED");
         factory.afterPropertiesSet();
+        return factory;
+    }
+
+    @Override
+    protected JobExplorer createJobExplorer() throws Exception {
+        JobExplorerFactoryBean factory = new JobExplorerFactoryBean() {
+            @Override
+            protected ExecutionContextDao createExecutionContextDao() throws Exception {
+                return isBinaryContext() ? binaryExecutionContextDao() : super.createExecutionContextDao();
+            }
+        };
+        factory.setDataSource(dataSource);
+        factory.afterPropertiesSet();
         return factory.getObject();
     }
 
+    private boolean isBinaryContext() {
+        return CBOR_CONTEXT.equals(contextFormat);
+    }
+
+    private ExecutionContextDao binaryExecutionContextDao() throws Exception {
+        BinaryExecutionContextDao dao = new BinaryExecutionContextDao(
+                new BinaryExecutionContextSerializer(contextCompressAboveBytes));
+        dao.setJdbcTemplate(new JdbcTemplate(dataSource));
+        dao.afterPropertiesSet();
+        return dao;
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
@@ -151,58 +246,90 @@ public class BatchConfiguration extends DefaultBatchConfigurer implements Applic
     @Bean
     @Scope(SCOPE_PROTOTYPE)
     public JobSyncRunnable jobSyncRunnable(String name) {
-        return new JobSyncRunnable(name, jobExplorer, jobOperator, jobRepository, dynamoDBJobCoordinator);
+        return new JobSyncRunnable(name, jobExplorer, jobOperator, unfencedJobRepository, jobCoordinator,
+                jobExecutionStateCache, jobLaunchExecutor);
+    }
+
+    private JobParametersIncrementer fencingIncrementer(String jobName) {
+        return new FencingJobParametersIncrementer(jobName, jobCoordinator);
     }
 
     @Bean("tradeJob")
-    public Job tradeJob() {
+    public Job tradeJob(@Qualifier("tradeEtlStep") Step tradeEtlStep,
+                        @Qualifier("tradeMergeStep") Step tradeMergeStep,
+                        @Qualifier("tradeWindowListener") JobExecutionListener tradeWindowListener,
+                        @Qualifier("tradeLoadGuard") JobExecutionListener tradeLoadGuard) {
         return jobBuilderFactory.get(TRADE_JOB)
-                .incrementer(new RunIdIncrementer())
-                .start(stepBuilderFactory.get("trade-ETL")
-                        .tasklet((contribution, chunkContext) -> {
-                            LOGGER.info("Trades are pulled from source and staged in postgres");
-                            return RepeatStatus.FINISHED;
-                        }).listener(chunkListener)
-                        .build()
-                ).build();
+                .incrementer(fencingIncrementer(TRADE_JOB))
+                .listener(jobExecutionStateCache)
+                .listener(jobMetricsListener)
+                .listener(jobCompletionEvents)
+                .listener(tradeWindowListener)
+                .listener(tradeLoadGuard)
+                .start(tradeEtlStep)
+                .next(tradeMergeStep)
+                .build();
     }
 
     @Bean("priceJob")
-    public Job priceJob() {
+    public Job priceJob(@Qualifier("priceEtlStep") Step priceEtlStep,
+                        @Qualifier("priceMergeStep") Step priceMergeStep,
+                        @Qualifier("priceWindowListener") JobExecutionListener priceWindowListener,
+                        @Qualifier("priceLoadGuard") JobExecutionListener priceLoadGuard) {
         return jobBuilderFactory.get(PRICE_JOB)
-                .incrementer(new RunIdIncrementer())
-                .start(stepBuilderFactory.get("price-ETL")
-                        .tasklet((contribution, chunkContext) -> {
-                            LOGGER.info("Prices are pulled from source and staged in postgres");
-                            return RepeatStatus.FINISHED;
-                        }).listener(chunkListener)
-                        .build()
-                ).build();
+                .incrementer(fencingIncrementer(PRICE_JOB))
+                .listener(jobExecutionStateCache)
+                .listener(jobMetricsListener)
+                .listener(jobCompletionEvents)
+                .listener(priceWindowListener)
+                .listener(priceLoadGuard)
+                .start(priceEtlStep)
+                .next(priceMergeStep)
+                .build();
     }
 
     @Bean("publisherJob")
-    public Job publisherJob() {
+    public Job publisherJob(@Qualifier("publisherStep") Step publisherStep) {
         return jobBuilderFactory.get(PUBLISHER_JOB)
-                .incrementer(new RunIdIncrementer())
-                .start(stepBuilderFactory.get("publisher-step")
-                        .tasklet((contribution, chunkContext) -> {
-                            LOGGER.info("Publisher is loading from postgres and publishing the messages to the sink");
-                            return RepeatStatus.FINISHED;
-                        }).listener(chunkListener)
-                        .build()
-                ).build();
+                .incrementer(fencingIncrementer(PUBLISHER_JOB))
+                .listener(jobExecutionStateCache)
+                .listener(jobMetricsListener)
+                .listener(jobCompletionEvents)
+                .start(publisherStep)
+                .build();
     }
 
+    @Autowired
+    private JobMetricsListener jobMetricsListener;
+
+    @Autowired
+    private JobCompletionEvents jobCompletionEvents;
+
     @Autowired
     private GlobalJobMonitor globalJobMonitor;
 
+    @Autowired
+    private JobRepositoryRetention jobRepositoryRetention;
+
     @Bean("monitoringJob")
     public Job monitoringJob() {
         return jobBuilderFactory.get(MONITORING_JOB)
-                .incrementer(new RunIdIncrementer())
+                .incrementer(fencingIncrementer(MONITORING_JOB))
+                .listener(jobExecutionStateCache)
+                .listener(jobMetricsListener)
+                .listener(jobCompletionEvents)
                 .start(stepBuilderFactory.get("monitoring-ETL")
                         .tasklet((contribution, chunkContext) -> {
-                            globalJobMonitor.run();
+                            List<GlobalJobMonitor.OrphanedJob> orphanedJobs = globalJobMonitor.run();
+                            contribution.getStepExecution().getExecutionContext()
+                                    .putString("orphanedJobs", orphanedJobs.toString());
+                            return RepeatStatus.FINISHED;
+                        }).listener(chunkListener)
+                        .build()
+                )
+                .next(stepBuilderFactory.get("retention")
+                        .tasklet((contribution, chunkContext) -> {
+                            contribution.incrementWriteCount(jobRepositoryRetention.purge());
                             return RepeatStatus.FINISHED;
                         }).listener(chunkListener)
                         .build()
@@ -0,0 +1,155 @@
+package com.foo.config;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.AbstractJdbcBatchMetadataDao;
+import org.springframework.batch.core.repository.dao.ExecutionContextDao;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps execution contexts in the BINARY_CONTEXT (BYTEA) column, for {@code repository.context-format=cbor}. The
+ * default DAO of spring batch only writes text, where postgres does not take the NUL bytes of a binary format.
+ * <p>
+ * Contexts written as JSON before the switch are still read from SHORT_CONTEXT / SERIALIZED_CONTEXT and are rewritten
+ * in binary with their next update. The other way round is not supported : after switching back to json, the contexts
+ * written in binary cannot be read.
+ */
+public class BinaryExecutionContextDao extends AbstractJdbcBatchMetadataDao implements ExecutionContextDao {
+
+    private static final String FIND_JOB_EXECUTION_CONTEXT = "SELECT BINARY_CONTEXT, SHORT_CONTEXT, "
+            + "SERIALIZED_CONTEXT FROM %PREFIX%JOB_EXECUTION_CONTEXT WHERE JOB_EXECUTION_ID = ?";
+    private static final String INSERT_JOB_EXECUTION_CONTEXT = "INSERT INTO %PREFIX%JOB_EXECUTION_CONTEXT "
+            + "(BINARY_CONTEXT, JOB_EXECUTION_ID) VALUES (?, ?)";
+    private static final String UPDATE_JOB_EXECUTION_CONTEXT = "UPDATE %PREFIX%JOB_EXECUTION_CONTEXT "
+            + "SET BINARY_CONTEXT = ?, SHORT_CONTEXT = NULL, SERIALIZED_CONTEXT = NULL WHERE JOB_EXECUTION_ID = ?";
+    private static final String FIND_STEP_EXECUTION_CONTEXT = "SELECT BINARY_CONTEXT, SHORT_CONTEXT, "
+            + "SERIALIZED_CONTEXT FROM %PREFIX%STEP_EXECUTION_CONTEXT WHERE STEP_EXECUTION_ID = ?";
+    private static final String INSERT_STEP_EXECUTION_CONTEXT = "INSERT INTO %PREFIX%STEP_EXECUTION_CONTEXT "
+            + "(BINARY_CONTEXT, STEP_EXECUTION_ID) VALUES (?, ?)";
+    private static final String UPDATE_STEP_EXECUTION_CONTEXT = "UPDATE %PREFIX%STEP_EXECUTION_CONTEXT "
+            + "SET BINARY_CONTEXT = ?, SHORT_CONTEXT = NULL, SERIALIZED_CONTEXT = NULL WHERE STEP_EXECUTION_ID = ?";
+
+    private final ExecutionContextSerializer serializer;
+    // for the contexts written as JSON before the switch
+    private final ExecutionContextSerializer jsonSerializer = new Jackson2ExecutionContextStringSerializer();
+
+    public BinaryExecutionContextDao(ExecutionContextSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public ExecutionContext getExecutionContext(JobExecution jobExecution) {
+        return find(FIND_JOB_EXECUTION_CONTEXT, jobExecution.getId());
+    }
+
+    @Override
+    public ExecutionContext getExecutionContext(StepExecution stepExecution) {
+        return find(FIND_STEP_EXECUTION_CONTEXT, stepExecution.getId());
+    }
+
+    @Override
+    public void saveExecutionContext(JobExecution jobExecution) {
+        persist(INSERT_JOB_EXECUTION_CONTEXT, jobExecution.getId(), jobExecution.getExecutionContext());
+    }
+
+    @Override
+    public void saveExecutionContext(StepExecution stepExecution) {
+        persist(INSERT_STEP_EXECUTION_CONTEXT, stepExecution.getId(), stepExecution.getExecutionContext());
+    }
+
+    @Override
+    public void saveExecutionContexts(Collection<StepExecution> stepExecutions) {
+        List<Object[]> batchArgs = stepExecutions.stream()
+                .map(stepExecution -> new Object[]{serialize(stepExecution.getExecutionContext()),
+                        stepExecution.getId()})
+                .collect(Collectors.toList());
+        getJdbcTemplate().batchUpdate(getQuery(INSERT_STEP_EXECUTION_CONTEXT), batchArgs);
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        persist(UPDATE_JOB_EXECUTION_CONTEXT, jobExecution.getId(), jobExecution.getExecutionContext());
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        // same as spring batch : the context is not shared between threads while this reads it
+        synchronized (stepExecution) {
+            persist(UPDATE_STEP_EXECUTION_CONTEXT, stepExecution.getId(), stepExecution.getExecutionContext());
+        }
+    }
+
+    private ExecutionContext find(String sql, Long executionId) {
+        List<ExecutionContext> contexts = getJdbcTemplate().query(getQuery(sql), new ExecutionContextRowMapper(),
+                executionId);
+        return contexts.isEmpty() ? new ExecutionContext() : contexts.get(0);
+    }
+
+    private void persist(String sql, Long executionId, ExecutionContext executionContext) {
+        getJdbcTemplate().update(getQuery(sql), serialize(executionContext), executionId);
+    }
+
+    private byte[] serialize(ExecutionContext executionContext) {
+        Map<String, Object> context = new HashMap<>();
+        for (Map.Entry<String, Object> entry : executionContext.entrySet()) {
+            context.put(entry.getKey(), entry.getValue());
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            serializer.serialize(context, outputStream);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not serialize the execution context", e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private class ExecutionContextRowMapper implements RowMapper<ExecutionContext> {
+
+        @Override
+        public ExecutionContext mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+            ExecutionContext executionContext = new ExecutionContext();
+            Map<String, Object> context = deserialize(resultSet);
+            if (context != null) {
+                context.forEach(executionContext::put);
+            }
+            return executionContext;
+        }
+
+        private Map<String, Object> deserialize(ResultSet resultSet) throws SQLException {
+            byte[] binaryContext = resultSet.getBytes("BINARY_CONTEXT");
+            try {
+                if (binaryContext != null) {
+                    return serializer.deserialize(new ByteArrayInputStream(binaryContext));
+                }
+                String textContext = resultSet.getString("SERIALIZED_CONTEXT");
+                if (textContext == null) {
+                    textContext = resultSet.getString("SHORT_CONTEXT");
+                }
+                if (textContext == null) {
+                    return null;
+                }
+                // spring batch writes the JSON bytes as ISO-8859-1 text
+                InputStream inputStream = new ByteArrayInputStream(textContext.getBytes(StandardCharsets.ISO_8859_1));
+                return jsonSerializer.deserialize(inputStream);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to deserialize the execution context", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.foo.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes execution contexts as CBOR, with the same type handling as the default JSON serializer of spring batch, except
+ * that only the types the steps keep in their contexts are read back. Contexts of {@code compressAboveBytes} or more
+ * are gzipped on top, which is told apart on reading by the gzip magic number - a CBOR map never starts with it.
+ * <p>
+ * Unlike the JSON serializer, JobParameters held in a context are not supported.
+ */
+public class BinaryExecutionContextSerializer implements ExecutionContextSerializer {
+
+    private static final int GZIP_MAGIC = 0x1f8b;
+    // numbers, dates (java.sql.Timestamp too), and the collections of i.e. the start-after keys of the paging readers
+    private static final PolymorphicTypeValidator TYPE_VALIDATOR = BasicPolymorphicTypeValidator.builder()
+            .allowIfSubType(String.class)
+            .allowIfSubType(Boolean.class)
+            .allowIfSubType(Number.class)
+            .allowIfSubType(Date.class)
+            .allowIfSubType("java.util.")
+            .build();
+
+    // the JSON serializer of spring batch, given a CBOR object mapper
+    private final Jackson2ExecutionContextStringSerializer cborSerializer =
+            new Jackson2ExecutionContextStringSerializer();
+    private final int compressAboveBytes;
+
+    /**
+     * @param compressAboveBytes contexts at least this long are gzipped. Negative to never compress.
+     */
+    public BinaryExecutionContextSerializer(int compressAboveBytes) {
+        this.compressAboveBytes = compressAboveBytes;
+        ObjectMapper objectMapper = new ObjectMapper(new CBORFactory());
+        objectMapper.configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+        objectMapper.activateDefaultTyping(TYPE_VALIDATOR);
+        cborSerializer.setObjectMapper(objectMapper);
+    }
+
+    @Override
+    public void serialize(Map<String, Object> context, OutputStream outputStream) throws IOException {
+        ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+        cborSerializer.serialize(context, cbor);
+        if (compressAboveBytes < 0 || cbor.size() < compressAboveBytes) {
+            cbor.writeTo(outputStream);
+            return;
+        }
+        GZIPOutputStream gzip = new GZIPOutputStream(outputStream);
+        cbor.writeTo(gzip);
+        gzip.finish();
+    }
+
+    @Override
+    public Map<String, Object> deserialize(InputStream inputStream) throws IOException {
+        BufferedInputStream bufferedStream = new BufferedInputStream(inputStream);
+        bufferedStream.mark(2);
+        int magic = bufferedStream.read() << 8 | bufferedStream.read();
+        bufferedStream.reset();
+        return cborSerializer.deserialize(magic == GZIP_MAGIC ? new GZIPInputStream(bufferedStream) : bufferedStream);
+    }
+}
@@ -0,0 +1,48 @@
+package com.foo.config;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One partition per business date present in the table within the last lookbackDays days. Each partition gets
+ * {@link #BUSINESS_DATE} (ISO yyyy-MM-dd) in its step execution context. gridSize is not used - the number of
+ * partitions is the number of dates, and the size of the thread pool limits how many run at once.
+ */
+public class BusinessDatePartitioner implements Partitioner {
+
+    public static final String BUSINESS_DATE = "businessDate";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String businessDateColumn;
+    private final int lookbackDays;
+
+    public BusinessDatePartitioner(JdbcTemplate jdbcTemplate, String table, String businessDateColumn,
+                                   int lookbackDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.businessDateColumn = businessDateColumn;
+        this.lookbackDays = lookbackDays;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<LocalDate> businessDates = jdbcTemplate.queryForList(
+                "SELECT DISTINCT " + businessDateColumn + " FROM " + table + " WHERE " + businessDateColumn
+                        + " >= ? ORDER BY 1", LocalDate.class, LocalDate.now().minusDays(lookbackDays));
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        for (LocalDate businessDate : businessDates) {
+            ExecutionContext context = new ExecutionContext();
+            context.putString(BUSINESS_DATE, businessDate.toString());
+            partitions.put("businessDate-" + businessDate, context);
+        }
+        return partitions;
+    }
+}
@@ -1,31 +1,120 @@
 package com.foo.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the lease of the job before every chunk, and records {@code batch.chunk} (duration) and
+ * {@code batch.chunk.items} (items written) per step for the throughput of the chunks. The meters are looked up once
+ * per step execution, so a chunk only pays for reading the clock and recording.
+ */
 @Component
 public class ChunkListener implements org.springframework.batch.core.ChunkListener {
 
     @Autowired
-    private DynamoDBJobCoordinator dynamoDBJobCoordinator;
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private RemotePartitionRegistry remotePartitionRegistry;
+
+    // checking the lease every N chunks. The check itself does no I/O, so 1 is fine unless the chunks are tiny.
+    @Value("${chunk.lease-check-interval:1}")
+    private int leaseCheckInterval;
+
+    // resolved once per step execution and kept in its step context, which lives as long as the step
+    private static final String CHUNK_METERS = "metrics.chunk.meters";
 
     @Override
     public void beforeChunk(ChunkContext context) {
-        String jobName = context.getStepContext().getJobName();
-        boolean canContinue = dynamoDBJobCoordinator.canContinue(jobName);
-        if (!canContinue) {
+        StepContext stepContext = context.getStepContext();
+        StepExecution stepExecution = stepContext.getStepExecution();
+        chunkMeters(stepContext).start(stepExecution.getWriteCount());
+        if (remotePartitionRegistry.isWorker(stepExecution.getId())) {
+            // lock of the job is held by the manager of the partition
+            return;
+        }
+        String jobName = stepContext.getJobName();
+        LeaseFence leaseFence = jobCoordinator.getLeaseFence(jobName);
+        if (leaseFence.shouldCheck(leaseCheckInterval) && !leaseFence.isValid()) {
             throw new IllegalStateException("Lock expired for " + jobName);
         }
     }
 
     @Override
     public void afterChunk(ChunkContext context) {
-
+        record(context, true);
     }
 
     @Override
     public void afterChunkError(ChunkContext context) {
+        record(context, false);
+    }
+
+    private static ChunkMeters chunkMeters(StepContext stepContext) {
+        ChunkMeters chunkMeters = (ChunkMeters) stepContext.getAttribute(CHUNK_METERS);
+        if (chunkMeters == null) {
+            chunkMeters = new ChunkMeters(stepContext.getJobName(), stepContext.getStepName());
+            stepContext.setAttribute(CHUNK_METERS, chunkMeters);
+        }
+        return chunkMeters;
+    }
 
+    private static void record(ChunkContext context, boolean success) {
+        ChunkMeters chunkMeters = (ChunkMeters) context.getStepContext().getAttribute(CHUNK_METERS);
+        if (chunkMeters != null) {
+            chunkMeters.record(success, context.getStepContext().getStepExecution().getWriteCount());
+        }
+    }
+
+    /**
+     * Meters of the chunks of one step execution, and the start of the current chunk. The chunks of a step execution
+     * run one after the other.
+     */
+    private static class ChunkMeters {
+
+        private final Timer success;
+        private final Timer failure;
+        private final Counter items;
+        private boolean started;
+        private long startNanos;
+        private int writeCountBefore;
+
+        ChunkMeters(String jobName, String stepName) {
+            success = timer(jobName, stepName, "success");
+            failure = timer(jobName, stepName, "failure");
+            items = Metrics.globalRegistry.counter("batch.chunk.items", "job", jobName, "step", stepName);
+        }
+
+        private static Timer timer(String jobName, String stepName, String outcome) {
+            return Timer.builder("batch.chunk")
+                    .tag("job", jobName)
+                    .tag("step", stepName)
+                    .tag("outcome", outcome)
+                    .register(Metrics.globalRegistry);
+        }
+
+        void start(int writeCount) {
+            started = true;
+            startNanos = System.nanoTime();
+            writeCountBefore = writeCount;
+        }
+
+        void record(boolean succeeded, int writeCount) {
+            if (!started) {
+                return;
+            }
+            started = false;
+            (succeeded ? success : failure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            items.increment(Math.max(0, writeCount - writeCountBefore));
+        }
     }
 }
@@ -0,0 +1,44 @@
+package com.foo.config;
+
+import org.springframework.batch.core.repository.dao.ExecutionContextDao;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * Job repository factory with its own execution context DAO - the binary one of repository.context-format=cbor
+ * ({@link BinaryExecutionContextDao}) and / or a wrapper around it, i.e. the {@link LightweightExecutionContextDao} of
+ * repository.mode=lightweight. The DAO it ends up with is kept, for whatever has to work with it next to the
+ * repository.
+ */
+public class ContextDaoJobRepositoryFactoryBean<D extends ExecutionContextDao> extends JobRepositoryFactoryBean {
+
+    private final Callable<ExecutionContextDao> baseDao;
+    private final Function<ExecutionContextDao, D> wrapper;
+    private D executionContextDao;
+
+    /**
+     * @param baseDao the DAO to start from. null for the JDBC one of spring batch
+     * @param wrapper wraps the base DAO, {@link Function#identity()} to keep it as is
+     */
+    public ContextDaoJobRepositoryFactoryBean(Callable<ExecutionContextDao> baseDao,
+                                              Function<ExecutionContextDao, D> wrapper) {
+        this.baseDao = baseDao;
+        this.wrapper = wrapper;
+    }
+
+    @Override
+    protected ExecutionContextDao createExecutionContextDao() throws Exception {
+        ExecutionContextDao dao = baseDao == null ? super.createExecutionContextDao() : baseDao.call();
+        executionContextDao = wrapper.apply(dao);
+        return executionContextDao;
+    }
+
+    /**
+     * @return the DAO of the repository. null till the factory is initialized
+     */
+    public D getExecutionContextDao() {
+        return executionContextDao;
+    }
+}
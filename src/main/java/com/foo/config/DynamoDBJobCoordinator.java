@@ -3,105 +3,189 @@ package com.foo.config;
 import com.amazonaws.services.dynamodbv2.AcquireLockOptions;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBLockClient;
 import com.amazonaws.services.dynamodbv2.LockItem;
+import com.amazonaws.services.dynamodbv2.ReleaseLockOptions;
+import com.amazonaws.services.dynamodbv2.SendHeartbeatOptions;
+import com.amazonaws.services.dynamodbv2.model.LockCurrentlyUnavailableException;
+import com.amazonaws.services.dynamodbv2.model.LockNotGrantedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PreDestroy;
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Component
-public class DynamoDBJobCoordinator {
+@ConditionalOnProperty(name = "coordinator.backend", havingValue = "dynamodb", matchIfMissing = true)
+public class DynamoDBJobCoordinator extends AbstractJobCoordinator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBJobCoordinator.class);
 
     @Autowired
     private AmazonDynamoDBLockClient client;
 
+    @Autowired
+    @Qualifier("monitoringLockClient")
+    private AmazonDynamoDBLockClient monitoringClient;
+
     private final ConcurrentHashMap<String, LockItem> jobNameToHeldLockMap =
             new ConcurrentHashMap<>();
 
-    public boolean registerJob(String jobName) {
+    private volatile LockItem memberLock;
+
+    public DynamoDBJobCoordinator(@Qualifier("lockOwnerName") String ownerName) {
+        super(ownerName);
+    }
+
+    @Override
+    protected LeaseFence acquire(String jobName, boolean skipBlockingWait) {
         Optional<LockItem> lockItemOptional;
         try {
-            lockItemOptional = client.tryAcquireLock(AcquireLockOptions.builder(jobName).build());
+            lockItemOptional = client.tryAcquireLock(AcquireLockOptions.builder(jobName)
+                    .withShouldSkipBlockingWait(skipBlockingWait)
+                    .build());
         } catch (InterruptedException e) {
             LOGGER.error("Error while trying to acquire lock {} ", jobName, e);
-            return false;
+            return null;
+        } catch (LockCurrentlyUnavailableException e) {
+            LOGGER.info("Lock for {} is currently held by someone else", jobName);
+            return null;
         }
 
         if (lockItemOptional.isPresent()) {
             LockItem lockItem = lockItemOptional.get();
-            LOGGER.info(
-                    "Lock acquired for {} with RecordVersionNumber {}",
-                    jobName,
-                    lockItem.getRecordVersionNumber());
             jobNameToHeldLockMap.put(jobName, lockItem);
-            return true;
+            // the record version number changes with every heart beat. The one we acquired with is the fencing token.
+            return new LeaseFence(lockItem.getRecordVersionNumber(), leaseDeadlineNanos(lockItem));
         }
-        LOGGER.info("Unable to acquire lock for {}", jobName);
-        return false;
+        return null;
     }
 
-    public boolean canContinue(String jobName) {
-
-        if (jobNameToHeldLockMap.containsKey(jobName)) {
-            LockItem lockItem = jobNameToHeldLockMap.get(jobName);
-            if (lockItem.isExpired()) {
-                // Intentionally not removing the expired lock. They will be overridden when new lock is
-                // acquired for the same jobName.
-                // that way you are avoiding concurrent access.
-                LOGGER.error(
-                        "Lock with lockName {} expired for {} Lock's RecordVersionNumber : {}",
-                        lockItem.getPartitionKey(),
-                        jobName,
-                        lockItem.getRecordVersionNumber());
-                return false;
-            } else {
-                LOGGER.debug(
-                        "Lock with lockName {} still alive for {}. Lock's RecordVersionNumber : {}. Can continue",
-                        lockItem.getPartitionKey(),
-                        jobName,
-                        lockItem.getRecordVersionNumber());
-                return true;
-            }
-        } else {
-            LOGGER.error("Lock is not present for {}", jobName);
-            return false;
+    @Override
+    protected Long renew(String jobName) {
+        LockItem lockItem = jobNameToHeldLockMap.get(jobName);
+        if (lockItem == null) {
+            return null;
         }
-
+        try {
+            client.sendHeartbeat(lockItem);
+        } catch (LockNotGrantedException e) {
+            LOGGER.error("Heart beat refused for {}", jobName, e);
+            return null;
+        }
+        return leaseDeadlineNanos(lockItem);
     }
 
-    public void unregisterJob(String jobName) {
+    @Override
+    protected void release(String jobName) {
         LockItem lockItem = jobNameToHeldLockMap.remove(jobName);
         if (lockItem == null) {
-            LOGGER.warn(
-                    "LockItem was null for {}. Someone unregistered the Job before this call, which should never happen",
-                    jobName);
+            return;
+        }
+        boolean isReleased = client.releaseLock(lockItem);
+        if (!isReleased) {
+            LOGGER.error(
+                    "Unable to release lock {} for Job : {} with recordVersion {}",
+                    lockItem.getPartitionKey(),
+                    jobName,
+                    lockItem.getRecordVersionNumber());
         } else {
-            boolean isReleased = client.releaseLock(lockItem);
-            if (!isReleased) {
-                LOGGER.error(
-                        "Unable to release lock {} for Job : {} with recordVersion {}",
-                        lockItem.getPartitionKey(),
-                        jobName,
-                        lockItem.getRecordVersionNumber());
+            LOGGER.info(
+                    "Released lock {} for Job :{} with recordVersion {}",
+                    lockItem.getPartitionKey(),
+                    jobName,
+                    lockItem.getRecordVersionNumber());
+        }
+    }
+
+    @Override
+    protected String describe(String jobName) {
+        LockItem lockItem = jobNameToHeldLockMap.get(jobName);
+        return lockItem == null ? "No lock item"
+                : "Lock's RecordVersionNumber : " + lockItem.getRecordVersionNumber();
+    }
+
+    @Override
+    public void advertise(byte[] data) {
+        LockItem lockItem = memberLock;
+        try {
+            if (lockItem == null || lockItem.isExpired()) {
+                memberLock = client.tryAcquireLock(AcquireLockOptions.builder(MEMBER_LOCK_PREFIX + getOwnerName())
+                        .withData(ByteBuffer.wrap(data))
+                        .withReplaceData(true)
+                        .withDeleteLockOnRelease(true)
+                        .build())
+                        .orElse(null);
             } else {
-                LOGGER.info(
-                        "Released lock {} for Job :{} with recordVersion {}",
-                        lockItem.getPartitionKey(),
-                        jobName,
-                        lockItem.getRecordVersionNumber());
+                client.sendHeartbeat(SendHeartbeatOptions.builder(lockItem).withData(ByteBuffer.wrap(data)).build());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (LockNotGrantedException e) {
+            LOGGER.warn("Unable to advertise for {}. Will retry with a new lock", getOwnerName(), e);
+            memberLock = null;
+        }
+    }
+
+    @Override
+    protected void renewMember() {
+        LockItem lockItem = memberLock;
+        if (lockItem != null) {
+            client.sendHeartbeat(lockItem);
         }
     }
 
-    @PreDestroy
-    public void cleanup() throws IOException {
-        LOGGER.info("Cleaning up locks held");
+    @Override
+    public List<LockRecord> readLocks() {
+        return client.getAllLocksFromDynamoDB(false)
+                .map(lockItem -> new LockRecord(lockItem.getPartitionKey(), lockItem.getOwnerName(),
+                        lockItem.getRecordVersionNumber(), lockItem.getLeaseDuration(),
+                        lockItem.getData().map(DynamoDBJobCoordinator::toBytes).orElse(null)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Acquires the lock with the monitoring lock client. The lock client waits for the lease duration to see if the
+     * owner sends a heart beat in between, so a live owner is never mistaken for a dead one. A lock acquired here is
+     * released and deleted right away, so that any instance with a free token can take it without waiting.
+     */
+    @Override
+    public boolean confirmOrphaned(LockRecord suspect) {
+        Optional<LockItem> acquired;
+        try {
+            acquired = monitoringClient.tryAcquireLock(AcquireLockOptions.builder(suspect.getName()).build());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (LockCurrentlyUnavailableException e) {
+            return false;
+        }
+        acquired.ifPresent(lockItem -> monitoringClient.releaseLock(ReleaseLockOptions.builder(lockItem)
+                .withDeleteLock(true)
+                .build()));
+        return acquired.isPresent();
+    }
+
+    // lookup time is taken from System.nanoTime before the lease was written. So this is on the safe side.
+    private static long leaseDeadlineNanos(LockItem lockItem) {
+        return TimeUnit.MILLISECONDS.toNanos(lockItem.getLookupTime() + lockItem.getLeaseDuration());
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        ByteBuffer duplicate = buffer.duplicate();
+        byte[] bytes = new byte[duplicate.remaining()];
+        duplicate.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    protected void close() throws Exception {
         this.client.close();
     }
 }
@@ -9,9 +9,12 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDBLockClient;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBLockClientOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 import java.net.Inet4Address;
 import java.net.UnknownHostException;
@@ -24,6 +27,7 @@ public class DynamoDbConfiguration {
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDbConfiguration.class);
 
     @Bean
+    @ConditionalOnProperty(name = "coordinator.backend", havingValue = "dynamodb", matchIfMissing = true)
     public AmazonDynamoDB dynamoDB(
             @Value("${dynamodb.accessKey}") String accessKey,
             @Value("${dynamodb.secretKey}") String secretKey,
@@ -39,12 +43,10 @@ public class DynamoDbConfiguration {
     }
 
     public static final Long DYNAMO_DB_LEASE_DURATION_IN_SECONDS = 10L;
+    public static final Long DYNAMO_DB_HEARTBEAT_PERIOD_IN_SECONDS = 3L;
 
-    @Bean
-    public AmazonDynamoDBLockClient amazonDynamoDBLockClient(
-            AmazonDynamoDB dynamoDB, @Value("${dynamodb.tablename}") String tableName,
-            @Value("${dynamodb.partitionKey}") String partitionKey) {
-
+    @Bean("lockOwnerName")
+    public String lockOwnerName() {
         String ownerName;
         try {
             ownerName = Inet4Address.getLocalHost().getHostName() + UUID.randomUUID().toString();
@@ -52,15 +54,51 @@ public class DynamoDbConfiguration {
             ownerName = UUID.randomUUID().toString();
         }
         LOGGER.info("OwnerName : {}", ownerName);
+        return ownerName;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "coordinator.backend", havingValue = "dynamodb", matchIfMissing = true)
+    public AmazonDynamoDBLockClient amazonDynamoDBLockClient(
+            AmazonDynamoDB dynamoDB, @Value("${dynamodb.tablename}") String tableName,
+            @Value("${dynamodb.partitionKey}") String partitionKey,
+            @Qualifier("lockOwnerName") String ownerName) {
+
         AmazonDynamoDBLockClientOptions.AmazonDynamoDBLockClientOptionsBuilder builder =
                 AmazonDynamoDBLockClientOptions.builder(dynamoDB, tableName)
                         .withPartitionKeyName(partitionKey)
                         .withTimeUnit(TimeUnit.SECONDS)
                         .withLeaseDuration(DYNAMO_DB_LEASE_DURATION_IN_SECONDS)
-                        .withHeartbeatPeriod(3L)
-                        .withCreateHeartbeatBackgroundThread(true)
+                        .withHeartbeatPeriod(DYNAMO_DB_HEARTBEAT_PERIOD_IN_SECONDS)
+                        // heart beats are sent by DynamoDBJobCoordinator which keeps the lease fences up to date
+                        .withCreateHeartbeatBackgroundThread(false)
                         .withOwnerName(ownerName);
 
         return new AmazonDynamoDBLockClient(builder.build());
     }
-}
\ No newline at end of file
+
+    public static final Long MONITORING_LEASE_DURATION_IN_SECONDS = 2L;
+
+    /**
+     * Lock client used by {@link DynamoDBJobCoordinator#confirmOrphaned(LockRecord)} to confirm that a lock is
+     * orphaned. Different owner, short lease and no heart beats, so a lock it happens to acquire is given back right
+     * away.
+     */
+    @Bean("monitoringLockClient")
+    @ConditionalOnProperty(name = "coordinator.backend", havingValue = "dynamodb", matchIfMissing = true)
+    public AmazonDynamoDBLockClient monitoringLockClient(
+            AmazonDynamoDB dynamoDB, @Value("${dynamodb.tablename}") String tableName,
+            @Value("${dynamodb.partitionKey}") String partitionKey,
+            @Qualifier("lockOwnerName") String ownerName) {
+        AmazonDynamoDBLockClientOptions.AmazonDynamoDBLockClientOptionsBuilder builder =
+                AmazonDynamoDBLockClientOptions.builder(dynamoDB, tableName)
+                        .withPartitionKeyName(partitionKey)
+                        .withTimeUnit(TimeUnit.SECONDS)
+                        .withLeaseDuration(MONITORING_LEASE_DURATION_IN_SECONDS)
+                        .withCreateHeartbeatBackgroundThread(false)
+                        .withOwnerName(ownerName + "_monitor");
+
+        return new AmazonDynamoDBLockClient(builder.build());
+    }
+}
@@ -0,0 +1,382 @@
+package com.foo.config;
+
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.support.TaskExecutorPartitionHandler;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.integration.partition.BeanFactoryStepLocator;
+import org.springframework.batch.integration.partition.MessageChannelPartitionHandler;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.item.database.support.PostgresPagingQueryProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.core.MessagingTemplate;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.foo.config.BusinessDatePartitioner.BUSINESS_DATE;
+import static com.foo.config.IncrementalWindowListener.WATERMARK_FROM;
+import static com.foo.config.IncrementalWindowListener.WATERMARK_TO;
+import static com.foo.config.KeyRangePartitioner.MAX_KEY;
+import static com.foo.config.KeyRangePartitioner.MIN_KEY;
+
+/**
+ * Steps of trade-job and price-job. Each is a partitioned step whose partitions run on a local thread pool, trades
+ * split by key range and prices by business date. The readers save their position in the step execution of their
+ * partition, so a restart re-runs only the partitions that did not complete, from where they stopped.
+ * <p>
+ * With {@code etl.partition.mode=remote} the partitions are run by whichever instances have tokens free instead.
+ * See {@link RemotePartitionWorker}.
+ */
+@Configuration
+public class EtlConfiguration {
+
+    private static final String TRADE_PARTITION_STEP = "trade-ETL-partition";
+    private static final String PRICE_PARTITION_STEP = "price-ETL-partition";
+    private static final List<String> TRADE_COLUMNS =
+            List.of("TRADE_ID", "BUSINESS_DATE", "INSTRUMENT", "QUANTITY", "PRICE", "LAST_UPDATED");
+    private static final List<String> PRICE_COLUMNS = List.of("INSTRUMENT", "BUSINESS_DATE", "PRICE", "LAST_UPDATED");
+    // the load table may hold the same row more than once, i.e. from a chunk of an abandoned run. Latest one wins.
+    // Rows not newer than the staged ones are left alone, so that the rows merged are the ones that changed.
+    static final String MERGE_TRADES = "INSERT INTO STAGED_TRADE (TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, "
+            + "PRICE, LAST_UPDATED) SELECT DISTINCT ON (TRADE_ID) TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, "
+            + "PRICE, LAST_UPDATED FROM STAGED_TRADE_LOAD ORDER BY TRADE_ID, LAST_UPDATED DESC "
+            + "ON CONFLICT (TRADE_ID) DO UPDATE SET BUSINESS_DATE = EXCLUDED.BUSINESS_DATE, "
+            + "INSTRUMENT = EXCLUDED.INSTRUMENT, QUANTITY = EXCLUDED.QUANTITY, PRICE = EXCLUDED.PRICE, "
+            + "LAST_UPDATED = EXCLUDED.LAST_UPDATED WHERE STAGED_TRADE.LAST_UPDATED < EXCLUDED.LAST_UPDATED";
+    static final String MERGE_PRICES = "INSERT INTO STAGED_PRICE (INSTRUMENT, BUSINESS_DATE, PRICE, LAST_UPDATED) "
+            + "SELECT DISTINCT ON (INSTRUMENT, BUSINESS_DATE) INSTRUMENT, BUSINESS_DATE, PRICE, LAST_UPDATED "
+            + "FROM STAGED_PRICE_LOAD ORDER BY INSTRUMENT, BUSINESS_DATE, LAST_UPDATED DESC "
+            + "ON CONFLICT (INSTRUMENT, BUSINESS_DATE) DO UPDATE SET PRICE = EXCLUDED.PRICE, "
+            + "LAST_UPDATED = EXCLUDED.LAST_UPDATED WHERE STAGED_PRICE.LAST_UPDATED < EXCLUDED.LAST_UPDATED";
+
+    @Autowired
+    private StepBuilderFactory stepBuilderFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ChunkListener chunkListener;
+
+    @Value("${etl.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${etl.partition.grid-size:4}")
+    private int gridSize;
+
+    // copy : COPY into unlogged load tables, merged into the staging tables at the end of the job
+    // insert : batched upserts straight into the staging tables
+    @Value("${etl.staging.writer:copy}")
+    private String stagingWriter;
+
+    @Value("${etl.sync-mode:full}")
+    private String syncMode;
+
+    // rows changed more recently are left to the next run, see IncrementalWindowListener
+    @Value("${etl.incremental.commit-lag-seconds:60}")
+    private long commitLagSeconds;
+
+    @Autowired
+    private WatermarkStore watermarkStore;
+
+    @Value("${etl.partition.mode:local}")
+    private String partitionMode;
+
+    @Value("${etl.remote.poll-interval-millis:1000}")
+    private long remotePollIntervalMillis;
+
+    // the manager step fails if the partitions are not done by then, i.e. a worker died half way
+    @Value("${etl.remote.timeout-seconds:3600}")
+    private long remoteTimeoutSeconds;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Bean("etlPartitionExecutor")
+    public ThreadPoolTaskExecutor etlPartitionExecutor(
+            @Value("${etl.partition.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ETL-PARTITION-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    @Bean("tradeEtlStep")
+    public Step tradeEtlStep(ThreadPoolTaskExecutor etlPartitionExecutor) throws Exception {
+        return stepBuilderFactory.get("trade-ETL")
+                .partitioner(TRADE_PARTITION_STEP,
+                        new KeyRangePartitioner(new JdbcTemplate(dataSource), "SOURCE_TRADE", "TRADE_ID"))
+                .partitionHandler(partitionHandler(tradePartitionStep(), tradePartitionRequests(),
+                        etlPartitionExecutor))
+                .build();
+    }
+
+    @Bean("priceEtlStep")
+    public Step priceEtlStep(ThreadPoolTaskExecutor etlPartitionExecutor,
+                             @Value("${etl.price.lookback-days:5}") int lookbackDays) throws Exception {
+        return stepBuilderFactory.get("price-ETL")
+                .partitioner(PRICE_PARTITION_STEP,
+                        new BusinessDatePartitioner(new JdbcTemplate(dataSource), "SOURCE_PRICE", "BUSINESS_DATE",
+                                lookbackDays))
+                .partitionHandler(partitionHandler(pricePartitionStep(), pricePartitionRequests(),
+                        etlPartitionExecutor))
+                .build();
+    }
+
+    /**
+     * local : partitions run on the local thread pool.
+     * remote : partitions are sent through the channel and run by {@link RemotePartitionWorker}s of any instance.
+     * The manager waits by polling the job repository for the partitions' step executions.
+     */
+    private PartitionHandler partitionHandler(Step workerStep, PartitionRequestChannel channel,
+                                              ThreadPoolTaskExecutor etlPartitionExecutor) throws Exception {
+        if ("remote".equals(partitionMode)) {
+            MessageChannelPartitionHandler partitionHandler = new MessageChannelPartitionHandler();
+            partitionHandler.setStepName(workerStep.getName());
+            partitionHandler.setGridSize(gridSize);
+            partitionHandler.setMessagingOperations(new MessagingTemplate(channel));
+            partitionHandler.setJobExplorer(jobExplorer);
+            partitionHandler.setPollInterval(remotePollIntervalMillis);
+            partitionHandler.setTimeout(TimeUnit.SECONDS.toMillis(remoteTimeoutSeconds));
+            partitionHandler.afterPropertiesSet();
+            return partitionHandler;
+        }
+        TaskExecutorPartitionHandler partitionHandler = new TaskExecutorPartitionHandler();
+        partitionHandler.setStep(workerStep);
+        partitionHandler.setTaskExecutor(etlPartitionExecutor);
+        partitionHandler.setGridSize(gridSize);
+        partitionHandler.afterPropertiesSet();
+        return partitionHandler;
+    }
+
+    @Bean
+    public PartitionRequestChannel tradePartitionRequests() {
+        return new PartitionRequestChannel(new JdbcTemplate(dataSource), BatchConfiguration.TRADE_JOB,
+                remotePollIntervalMillis);
+    }
+
+    @Bean
+    public PartitionRequestChannel pricePartitionRequests() {
+        return new PartitionRequestChannel(new JdbcTemplate(dataSource), BatchConfiguration.PRICE_JOB,
+                remotePollIntervalMillis);
+    }
+
+    // worker steps are looked up by their step name by RemotePartitionWorker. hence the bean names.
+    @Bean
+    public BeanFactoryStepLocator partitionStepLocator() {
+        return new BeanFactoryStepLocator();
+    }
+
+    @Bean(TRADE_PARTITION_STEP)
+    public Step tradePartitionStep() {
+        return stepBuilderFactory.get(TRADE_PARTITION_STEP)
+                .<Map<String, Object>, Map<String, Object>>chunk(chunkSize)
+                .reader(tradeReader(null, null, null, null))
+                .writer(tradeWriter())
+                .listener(chunkListener)
+                .build();
+    }
+
+    @Bean(PRICE_PARTITION_STEP)
+    public Step pricePartitionStep() {
+        return stepBuilderFactory.get(PRICE_PARTITION_STEP)
+                .<Map<String, Object>, Map<String, Object>>chunk(chunkSize)
+                .reader(priceReader(null, null, null))
+                .writer(priceWriter())
+                .listener(chunkListener)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<Map<String, Object>> tradeReader(
+            @Value("#{stepExecutionContext['" + MIN_KEY + "']}") Long minKey,
+            @Value("#{stepExecutionContext['" + MAX_KEY + "']}") Long maxKey,
+            @Value("#{jobExecutionContext['" + WATERMARK_FROM + "']}") String watermarkFrom,
+            @Value("#{jobExecutionContext['" + WATERMARK_TO + "']}") String watermarkTo) {
+        Map<String, Object> parameterValues = new HashMap<>();
+        parameterValues.put("minKey", minKey);
+        parameterValues.put("maxKey", maxKey);
+        PostgresPagingQueryProvider queryProvider = new PostgresPagingQueryProvider();
+        queryProvider.setSelectClause("TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, PRICE, LAST_UPDATED");
+        queryProvider.setFromClause("SOURCE_TRADE");
+        queryProvider.setWhereClause("TRADE_ID BETWEEN :minKey AND :maxKey"
+                + changedWithin(watermarkFrom, watermarkTo, parameterValues));
+        queryProvider.setSortKeys(Map.of("TRADE_ID", Order.ASCENDING));
+        return new JdbcPagingItemReaderBuilder<Map<String, Object>>()
+                .name("tradeReader")
+                .dataSource(dataSource)
+                .queryProvider(queryProvider)
+                .parameterValues(parameterValues)
+                .pageSize(chunkSize)
+                .rowMapper(new ColumnMapRowMapper())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<Map<String, Object>> priceReader(
+            @Value("#{stepExecutionContext['" + BUSINESS_DATE + "']}") String businessDate,
+            @Value("#{jobExecutionContext['" + WATERMARK_FROM + "']}") String watermarkFrom,
+            @Value("#{jobExecutionContext['" + WATERMARK_TO + "']}") String watermarkTo) {
+        Map<String, Object> parameterValues = new HashMap<>();
+        parameterValues.put("businessDate", LocalDate.parse(businessDate));
+        PostgresPagingQueryProvider queryProvider = new PostgresPagingQueryProvider();
+        queryProvider.setSelectClause("INSTRUMENT, BUSINESS_DATE, PRICE, LAST_UPDATED");
+        queryProvider.setFromClause("SOURCE_PRICE");
+        queryProvider.setWhereClause("BUSINESS_DATE = :businessDate"
+                + changedWithin(watermarkFrom, watermarkTo, parameterValues));
+        queryProvider.setSortKeys(Map.of("INSTRUMENT", Order.ASCENDING));
+        return new JdbcPagingItemReaderBuilder<Map<String, Object>>()
+                .name("priceReader")
+                .dataSource(dataSource)
+                .queryProvider(queryProvider)
+                .parameterValues(parameterValues)
+                .pageSize(chunkSize)
+                .rowMapper(new ColumnMapRowMapper())
+                .build();
+    }
+
+    // the window set by IncrementalWindowListener, if the job runs incrementally. Assumes that no row stamped at or
+    // before watermarkTo commits after the run started - the window ends etl.incremental.commit-lag-seconds before the
+    // start, see IncrementalWindowListener. A row that commits later than that is skipped for good.
+    private static String changedWithin(String watermarkFrom, String watermarkTo, Map<String, Object> parameterValues) {
+        if (watermarkTo == null) {
+            return "";
+        }
+        parameterValues.put("watermarkFrom", Timestamp.from(Instant.parse(watermarkFrom)));
+        parameterValues.put("watermarkTo", Timestamp.from(Instant.parse(watermarkTo)));
+        return " AND LAST_UPDATED > :watermarkFrom AND LAST_UPDATED <= :watermarkTo";
+    }
+
+    @Bean
+    public ItemWriter<Map<String, Object>> tradeWriter() {
+        if ("copy".equals(stagingWriter)) {
+            return copyWriter("STAGED_TRADE_LOAD", TRADE_COLUMNS);
+        }
+        // upserts, so that a chunk re-written after a restart does not fail on the rows it already staged
+        return new JdbcBatchItemWriterBuilder<Map<String, Object>>()
+                .dataSource(dataSource)
+                .sql("INSERT INTO STAGED_TRADE (TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, PRICE, LAST_UPDATED) "
+                        + "VALUES (:trade_id, :business_date, :instrument, :quantity, :price, :last_updated) "
+                        + "ON CONFLICT (TRADE_ID) DO UPDATE SET BUSINESS_DATE = EXCLUDED.BUSINESS_DATE, "
+                        + "INSTRUMENT = EXCLUDED.INSTRUMENT, QUANTITY = EXCLUDED.QUANTITY, PRICE = EXCLUDED.PRICE, "
+                        + "LAST_UPDATED = EXCLUDED.LAST_UPDATED")
+                .itemSqlParameterSourceProvider(MapSqlParameterSource::new)
+                .build();
+    }
+
+    @Bean
+    public ItemWriter<Map<String, Object>> priceWriter() {
+        if ("copy".equals(stagingWriter)) {
+            return copyWriter("STAGED_PRICE_LOAD", PRICE_COLUMNS);
+        }
+        return new JdbcBatchItemWriterBuilder<Map<String, Object>>()
+                .dataSource(dataSource)
+                .sql("INSERT INTO STAGED_PRICE (INSTRUMENT, BUSINESS_DATE, PRICE, LAST_UPDATED) "
+                        + "VALUES (:instrument, :business_date, :price, :last_updated) "
+                        + "ON CONFLICT (INSTRUMENT, BUSINESS_DATE) DO UPDATE SET PRICE = EXCLUDED.PRICE, "
+                        + "LAST_UPDATED = EXCLUDED.LAST_UPDATED")
+                .itemSqlParameterSourceProvider(MapSqlParameterSource::new)
+                .build();
+    }
+
+    // rows are read with ColumnMapRowMapper, whose maps are case insensitive
+    private PostgresCopyItemWriter<Map<String, Object>> copyWriter(String loadTable, List<String> columns) {
+        return new PostgresCopyItemWriter<>(dataSource, loadTable, columns,
+                item -> columns.stream().map(item::get).toArray());
+    }
+
+    /**
+     * full : every run syncs the whole source.
+     * incremental : a run syncs only the rows changed since the last run that completed. See
+     * {@link IncrementalWindowListener}.
+     */
+    @Bean("tradeWindowListener")
+    public JobExecutionListener tradeWindowListener() {
+        return windowListener("SOURCE_TRADE");
+    }
+
+    @Bean("priceWindowListener")
+    public JobExecutionListener priceWindowListener() {
+        return windowListener("SOURCE_PRICE");
+    }
+
+    private JobExecutionListener windowListener(String sourceTable) {
+        if (!"incremental".equals(syncMode)) {
+            return new JobExecutionListenerSupport();
+        }
+        return new IncrementalWindowListener(jobRepository, watermarkStore, new JdbcTemplate(dataSource), sourceTable,
+                "LAST_UPDATED", TimeUnit.SECONDS.toMillis(commitLagSeconds));
+    }
+
+    /**
+     * copy : fails the restart of a job whose load table was emptied by a crash. See {@link LoadTableRestartGuard}.
+     */
+    @Bean("tradeLoadGuard")
+    public JobExecutionListener tradeLoadGuard() {
+        return loadGuard("STAGED_TRADE_LOAD", TRADE_PARTITION_STEP);
+    }
+
+    @Bean("priceLoadGuard")
+    public JobExecutionListener priceLoadGuard() {
+        return loadGuard("STAGED_PRICE_LOAD", PRICE_PARTITION_STEP);
+    }
+
+    private JobExecutionListener loadGuard(String loadTable, String partitionStepName) {
+        if (!"copy".equals(stagingWriter)) {
+            return new JobExecutionListenerSupport();
+        }
+        return new LoadTableRestartGuard(new JdbcTemplate(dataSource), jobExplorer, loadTable, partitionStepName);
+    }
+
+    // with etl.staging.writer=insert nothing is loaded, so the step only moves the high-water mark
+    @Bean("tradeMergeStep")
+    public Step tradeMergeStep() {
+        return stepBuilderFactory.get("trade-merge")
+                .tasklet(new StagingMergeTasklet(new JdbcTemplate(dataSource), mergeSql(MERGE_TRADES),
+                        "STAGED_TRADE_LOAD", watermarkStore))
+                .build();
+    }
+
+    @Bean("priceMergeStep")
+    public Step priceMergeStep() {
+        return stepBuilderFactory.get("price-merge")
+                .tasklet(new StagingMergeTasklet(new JdbcTemplate(dataSource), mergeSql(MERGE_PRICES),
+                        "STAGED_PRICE_LOAD", watermarkStore))
+                .build();
+    }
+
+    private String mergeSql(String mergeSql) {
+        return "copy".equals(stagingWriter) ? mergeSql : null;
+    }
+}
@@ -0,0 +1,135 @@
+package com.foo.config;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+import java.util.Collection;
+
+import static com.foo.config.FencingJobParametersIncrementer.FENCING_TOKEN;
+import static com.foo.config.FencingJobParametersIncrementer.LOCK_OWNER;
+
+/**
+ * Rejects updates to executions stamped by {@link FencingJobParametersIncrementer} unless this instance still holds
+ * the lock of the job with the same fencing token. A writer that lost its lock (i.e. paused past its lease) fails on
+ * its next update instead of overwriting what the new owner did. Executions that are not stamped are not checked.
+ * <p>
+ * Step executions run by this instance as a remote partition worker are not checked either. This instance does not
+ * hold the lock of their job - the manager does.
+ */
+public class FencedJobRepository implements JobRepository {
+
+    private final JobRepository delegate;
+    private final JobCoordinator jobCoordinator;
+    private final RemotePartitionRegistry remotePartitionRegistry;
+
+    public FencedJobRepository(JobRepository delegate, JobCoordinator jobCoordinator,
+                               RemotePartitionRegistry remotePartitionRegistry) {
+        this.delegate = delegate;
+        this.jobCoordinator = jobCoordinator;
+        this.remotePartitionRegistry = remotePartitionRegistry;
+    }
+
+    private void checkFence(StepExecution stepExecution) {
+        if (!remotePartitionRegistry.isWorker(stepExecution.getId())) {
+            checkFence(stepExecution.getJobExecution());
+        }
+    }
+
+    private void checkFence(JobExecution jobExecution) {
+        JobParameters jobParameters = jobExecution.getJobParameters();
+        String owner = jobParameters.getString(LOCK_OWNER);
+        if (owner == null) {
+            return;
+        }
+        String jobName = jobExecution.getJobInstance().getJobName();
+        LeaseFence leaseFence = jobCoordinator.getLeaseFence(jobName);
+        if (!owner.equals(jobCoordinator.getOwnerName())
+                || !leaseFence.isValid()
+                || !jobParameters.getString(FENCING_TOKEN, "").equals(leaseFence.getFencingToken())) {
+            throw new IllegalStateException("Rejecting stale update of JobExecution " + jobExecution.getId()
+                    + " for " + jobName + ". Stamped by " + owner + " with fencing token "
+                    + jobParameters.getString(FENCING_TOKEN));
+        }
+    }
+
+    @Override
+    public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+        return delegate.isJobInstanceExists(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.createJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public JobExecution createJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+                                           String jobConfigurationLocation) {
+        return delegate.createJobExecution(jobInstance, jobParameters, jobConfigurationLocation);
+    }
+
+    @Override
+    public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+            throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+        return delegate.createJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void update(JobExecution jobExecution) {
+        checkFence(jobExecution);
+        delegate.update(jobExecution);
+    }
+
+    @Override
+    public void add(StepExecution stepExecution) {
+        checkFence(stepExecution.getJobExecution());
+        delegate.add(stepExecution);
+    }
+
+    @Override
+    public void addAll(Collection<StepExecution> stepExecutions) {
+        for (StepExecution stepExecution : stepExecutions) {
+            checkFence(stepExecution.getJobExecution());
+        }
+        delegate.addAll(stepExecutions);
+    }
+
+    @Override
+    public void update(StepExecution stepExecution) {
+        checkFence(stepExecution);
+        delegate.update(stepExecution);
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        checkFence(stepExecution);
+        delegate.updateExecutionContext(stepExecution);
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        checkFence(jobExecution);
+        delegate.updateExecutionContext(jobExecution);
+    }
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        return delegate.getLastStepExecution(jobInstance, stepName);
+    }
+
+    @Override
+    public int getStepExecutionCount(JobInstance jobInstance, String stepName) {
+        return delegate.getStepExecutionCount(jobInstance, stepName);
+    }
+
+    @Override
+    public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+        return delegate.getLastJobExecution(jobName, jobParameters);
+    }
+}
@@ -0,0 +1,37 @@
+package com.foo.config;
+
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.JobParametersIncrementer;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+
+/**
+ * {@link RunIdIncrementer} that also stamps the next instance with the owner of the job's lock and the fencing token
+ * (record version number of the lock when it was acquired). Both are non identifying, so they do not change how job
+ * instances are keyed.
+ */
+public class FencingJobParametersIncrementer implements JobParametersIncrementer {
+
+    public static final String LOCK_OWNER = "lock.owner";
+    public static final String FENCING_TOKEN = "lock.fencingToken";
+
+    private final String jobName;
+    private final JobCoordinator jobCoordinator;
+    private final RunIdIncrementer runIdIncrementer = new RunIdIncrementer();
+
+    public FencingJobParametersIncrementer(String jobName, JobCoordinator jobCoordinator) {
+        this.jobName = jobName;
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    @Override
+    public JobParameters getNext(JobParameters parameters) {
+        JobParametersBuilder builder = new JobParametersBuilder(runIdIncrementer.getNext(parameters));
+        builder.addString(LOCK_OWNER, jobCoordinator.getOwnerName(), false);
+        String fencingToken = jobCoordinator.getLeaseFence(jobName).getFencingToken();
+        if (fencingToken != null) {
+            builder.addString(FENCING_TOKEN, fencingToken, false);
+        }
+        return builder.toJobParameters();
+    }
+}
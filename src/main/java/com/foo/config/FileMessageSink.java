@@ -0,0 +1,80 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Appends the messages to a file, one per line. A batch is acknowledged once it is forced to disk. Batches are
+ * written one after the other by a single thread, in the order they were sent.
+ */
+@Component
+@ConditionalOnProperty(name = "publisher.sink", havingValue = "file", matchIfMissing = true)
+public class FileMessageSink implements MessageSink {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileMessageSink.class);
+
+    @Value("${publisher.sink.file.path:build/published/messages.jsonl}")
+    private String path;
+
+    private FileChannel fileChannel;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "FILE-SINK");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path file = Paths.get(path);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        LOGGER.info("Publishing to {}", file.toAbsolutePath());
+    }
+
+    @Override
+    public CompletableFuture<Void> send(List<String> messages) {
+        return CompletableFuture.runAsync(() -> {
+            StringBuilder lines = new StringBuilder();
+            for (String message : messages) {
+                lines.append(message).append('\n');
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
+                fileChannel.force(false);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to write to " + path, e);
+            }
+        }, writer);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writer.shutdown();
+        fileChannel.close();
+    }
+}
@@ -1,25 +1,117 @@
 package com.foo.config;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBLockClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Finds jobs whose locks are not possessed by any live instance.
+ * <p>
+ * Trying to acquire every lock costs a write per job per check. Instead, every run reads the whole lock table once
+ * and compares each lock's record version number with the one seen by the previous run. The owner's heart beat
+ * changes the record version number every few seconds, so a lock whose record version number did not change for
+ * longer than its lease is suspect. Only suspects are confirmed with {@link JobCoordinator#confirmOrphaned}, which
+ * for DynamoDB tries to acquire them with a separate lock client that has its own owner name, a short lease and no
+ * heart beats.
+ */
 @Component
 public class GlobalJobMonitor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalJobMonitor.class);
 
     @Autowired
-    private AmazonDynamoDBLockClient client;
+    private JobCoordinator jobCoordinator;
+
+    // what the previous run saw per job
+    private final Map<String, Observation> observations = new ConcurrentHashMap<>();
 
-    public void run() {
+    public List<OrphanedJob> run() {
         LOGGER.info("monitoring job is running");
-        /**
-         * I played around with the dynamo client to see if there is any way to read the locks from dynamo table.
-         * Yes there is. But that does not tell you whether they are held by someother instance.
-         * The only way you can achieve this, is by created a "monitoringClient" which runs with "ownerName_monitor" and no heart beats.
-         */
+        long now = System.nanoTime();
+        Map<String, LockRecord> jobLocks = jobCoordinator.readLocks().stream()
+                .filter(lockRecord -> BatchConfiguration.jobs.contains(lockRecord.getName()))
+                .collect(Collectors.toMap(LockRecord::getName, Function.identity()));
+
+        List<OrphanedJob> orphanedJobs = new ArrayList<>();
+        for (String job : BatchConfiguration.jobs) {
+            LockRecord lockRecord = jobLocks.get(job);
+            if (lockRecord == null) {
+                // released locks are deleted. Nobody owns this job.
+                observations.remove(job);
+                orphanedJobs.add(new OrphanedJob(job, null, 0L));
+                continue;
+            }
+            Observation previous = observations.get(job);
+            if (previous == null || !previous.recordVersion.equals(lockRecord.getRecordVersion())) {
+                observations.put(job, new Observation(lockRecord.getRecordVersion(), now));
+                continue;
+            }
+            long leaseAgeMillis = TimeUnit.NANOSECONDS.toMillis(now - previous.firstSeenNanos);
+            if (leaseAgeMillis > lockRecord.getLeaseDurationMillis() && jobCoordinator.confirmOrphaned(lockRecord)) {
+                orphanedJobs.add(new OrphanedJob(job, lockRecord.getOwner(), leaseAgeMillis));
+                observations.remove(job);
+            }
+        }
+
+        if (orphanedJobs.isEmpty()) {
+            LOGGER.info("Locks for all {} jobs are possessed by live instances", BatchConfiguration.jobs.size());
+        } else {
+            LOGGER.error("Found {} orphaned jobs : {}", orphanedJobs.size(), orphanedJobs);
+        }
+        return orphanedJobs;
+    }
+
+    private static class Observation {
+        private final String recordVersion;
+        private final long firstSeenNanos;
+
+        private Observation(String recordVersion, long firstSeenNanos) {
+            this.recordVersion = recordVersion;
+            this.firstSeenNanos = firstSeenNanos;
+        }
+    }
+
+    public static class OrphanedJob {
+        private final String jobName;
+        // null if there is no lock at all for the job
+        private final String owner;
+        // how long the lock has been seen without a heart beat
+        private final long leaseAgeMillis;
+
+        public OrphanedJob(String jobName, String owner, long leaseAgeMillis) {
+            this.jobName = jobName;
+            this.owner = owner;
+            this.leaseAgeMillis = leaseAgeMillis;
+        }
+
+        public String getJobName() {
+            return jobName;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public long getLeaseAgeMillis() {
+            return leaseAgeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "OrphanedJob{" +
+                    "jobName='" + jobName + '\'' +
+                    ", owner='" + owner + '\'' +
+                    ", leaseAgeMillis=" + leaseAgeMillis +
+                    '}';
+        }
     }
 }
@@ -0,0 +1,148 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.foo.config.DynamoDbConfiguration.DYNAMO_DB_LEASE_DURATION_IN_SECONDS;
+
+/**
+ * Locks in an {@link InMemoryLockTable}. Every call to the table can be slowed down and made to fail at random, to
+ * see how the scheduler copes with a slow or flaky lock backend.
+ */
+@Component
+@ConditionalOnProperty(name = "coordinator.backend", havingValue = "in-memory")
+public class InMemoryJobCoordinator extends AbstractJobCoordinator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryJobCoordinator.class);
+    private static final long LEASE_DURATION_MILLIS = TimeUnit.SECONDS.toMillis(DYNAMO_DB_LEASE_DURATION_IN_SECONDS);
+
+    private final InMemoryLockTable lockTable;
+    private final long latencyMillis;
+    private final double failureRate;
+
+    private final ConcurrentHashMap<String, Long> jobNameToFencingToken = new ConcurrentHashMap<>();
+
+    private volatile Long memberFencingToken;
+
+    @Autowired
+    public InMemoryJobCoordinator(@Qualifier("lockOwnerName") String ownerName,
+                                  @Value("${coordinator.in-memory.latency-millis:0}") long latencyMillis,
+                                  @Value("${coordinator.in-memory.failure-rate:0}") double failureRate) {
+        this(ownerName, InMemoryLockTable.shared(), latencyMillis, failureRate);
+    }
+
+    public InMemoryJobCoordinator(String ownerName, InMemoryLockTable lockTable, long latencyMillis,
+                                  double failureRate) {
+        super(ownerName);
+        this.lockTable = lockTable;
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    protected LeaseFence acquire(String jobName, boolean skipBlockingWait) {
+        simulateRoundTrip();
+        long startNanos = System.nanoTime();
+        Long fencingToken = lockTable.tryAcquire(jobName, getOwnerName(), LEASE_DURATION_MILLIS, null);
+        if (fencingToken == null) {
+            return null;
+        }
+        jobNameToFencingToken.put(jobName, fencingToken);
+        return new LeaseFence(String.valueOf(fencingToken),
+                startNanos + TimeUnit.MILLISECONDS.toNanos(LEASE_DURATION_MILLIS));
+    }
+
+    @Override
+    protected Long renew(String jobName) {
+        Long fencingToken = jobNameToFencingToken.get(jobName);
+        if (fencingToken == null) {
+            return null;
+        }
+        simulateRoundTrip();
+        long startNanos = System.nanoTime();
+        return lockTable.renew(jobName, getOwnerName(), fencingToken, null)
+                ? startNanos + TimeUnit.MILLISECONDS.toNanos(LEASE_DURATION_MILLIS) : null;
+    }
+
+    @Override
+    protected void release(String jobName) {
+        Long fencingToken = jobNameToFencingToken.remove(jobName);
+        if (fencingToken == null) {
+            return;
+        }
+        simulateRoundTrip();
+        if (lockTable.release(jobName, getOwnerName(), fencingToken)) {
+            LOGGER.info("Released lock for Job :{} with fencing token {}", jobName, fencingToken);
+        } else {
+            LOGGER.error("Unable to release lock for Job : {} with fencing token {}", jobName, fencingToken);
+        }
+    }
+
+    @Override
+    protected String describe(String jobName) {
+        return "Lock's fencing token : " + jobNameToFencingToken.get(jobName);
+    }
+
+    @Override
+    public void advertise(byte[] data) {
+        simulateRoundTrip();
+        Long fencingToken = memberFencingToken;
+        String memberLock = MEMBER_LOCK_PREFIX + getOwnerName();
+        if (fencingToken == null || !lockTable.renew(memberLock, getOwnerName(), fencingToken, data)) {
+            Long acquired = lockTable.tryAcquire(memberLock, getOwnerName(), LEASE_DURATION_MILLIS, data);
+            if (acquired != null) {
+                memberFencingToken = acquired;
+            }
+        }
+    }
+
+    @Override
+    protected void renewMember() {
+        Long fencingToken = memberFencingToken;
+        if (fencingToken != null) {
+            simulateRoundTrip();
+            lockTable.renew(MEMBER_LOCK_PREFIX + getOwnerName(), getOwnerName(), fencingToken, null);
+        }
+    }
+
+    @Override
+    public List<LockRecord> readLocks() {
+        simulateRoundTrip();
+        return lockTable.readLocks();
+    }
+
+    @Override
+    public boolean confirmOrphaned(LockRecord suspect) {
+        simulateRoundTrip();
+        return lockTable.isExpired(suspect.getName());
+    }
+
+    @Override
+    protected void close() {
+        lockTable.releaseAll(getOwnerName());
+    }
+
+    private void simulateRoundTrip() {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while talking to the lock table", e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Injected failure of the lock table");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.foo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock table shared by all the {@link InMemoryJobCoordinator}s of a JVM. Lets a handful of coordinators compete for
+ * jobs in one process, i.e. in benchmarks and local runs, without DynamoDB or postgres.
+ */
+public class InMemoryLockTable {
+
+    private static final InMemoryLockTable SHARED = new InMemoryLockTable();
+
+    private final ConcurrentHashMap<String, Entry> locks = new ConcurrentHashMap<>();
+    private final AtomicLong fencingTokens = new AtomicLong();
+
+    public static InMemoryLockTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return fencing token of the new lease. null if the lease is still live, even if this owner holds it. A live
+     * lease is extended with {@link #renew(String, String, long, byte[])}
+     */
+    public Long tryAcquire(String name, String owner, long leaseDurationMillis, byte[] data) {
+        long now = System.nanoTime();
+        Long[] fencingToken = new Long[1];
+        locks.compute(name, (key, current) -> {
+            if (current != null && !current.isExpired(now)) {
+                return current;
+            }
+            fencingToken[0] = fencingTokens.incrementAndGet();
+            return new Entry(owner, fencingToken[0], 0, now, leaseDurationMillis, data);
+        });
+        return fencingToken[0];
+    }
+
+    /**
+     * Extends the lease of a lock still held with the given fencing token. Keeps the data if data is null.
+     */
+    public boolean renew(String name, String owner, long fencingToken, byte[] data) {
+        long now = System.nanoTime();
+        boolean[] renewed = new boolean[1];
+        locks.computeIfPresent(name, (key, current) -> {
+            if (!current.owner.equals(owner) || current.fencingToken != fencingToken || current.isExpired(now)) {
+                return current;
+            }
+            renewed[0] = true;
+            return new Entry(owner, fencingToken, current.heartbeats + 1, now, current.leaseDurationMillis,
+                    data == null ? current.data : data);
+        });
+        return renewed[0];
+    }
+
+    public boolean release(String name, String owner, long fencingToken) {
+        Entry current = locks.get(name);
+        return current != null && current.owner.equals(owner) && current.fencingToken == fencingToken
+                && locks.remove(name, current);
+    }
+
+    public void releaseAll(String owner) {
+        locks.values().removeIf(entry -> entry.owner.equals(owner));
+    }
+
+    public boolean isExpired(String name) {
+        Entry current = locks.get(name);
+        return current == null || current.isExpired(System.nanoTime());
+    }
+
+    public List<LockRecord> readLocks() {
+        // members that stopped without releasing are not there anymore, unlike the job locks left for the others
+        long now = System.nanoTime();
+        locks.entrySet().removeIf(entry -> entry.getKey().startsWith(JobCoordinator.MEMBER_LOCK_PREFIX)
+                && entry.getValue().isExpired(now));
+        List<LockRecord> lockRecords = new ArrayList<>();
+        locks.forEach((name, entry) -> lockRecords.add(new LockRecord(name, entry.owner,
+                entry.fencingToken + "." + entry.heartbeats, entry.leaseDurationMillis, entry.data)));
+        return lockRecords;
+    }
+
+    private static final class Entry {
+        private final String owner;
+        private final long fencingToken;
+        private final long heartbeats;
+        private final long renewedAtNanos;
+        private final long leaseDurationMillis;
+        private final byte[] data;
+
+        private Entry(String owner, long fencingToken, long heartbeats, long renewedAtNanos,
+                      long leaseDurationMillis, byte[] data) {
+            this.owner = owner;
+            this.fencingToken = fencingToken;
+            this.heartbeats = heartbeats;
+            this.renewedAtNanos = renewedAtNanos;
+            this.leaseDurationMillis = leaseDurationMillis;
+            this.data = data;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return nowNanos - renewedAtNanos > leaseDurationMillis * 1_000_000L;
+        }
+    }
+}
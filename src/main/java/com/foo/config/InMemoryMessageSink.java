@@ -0,0 +1,47 @@
+package com.foo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the messages in memory. Stand-in for the real sink in local runs and benchmarks. Every batch can be made to
+ * take {@code publisher.sink.in-memory.latency-millis} to be acknowledged, like a remote sink would.
+ */
+@Component
+@ConditionalOnProperty(name = "publisher.sink", havingValue = "in-memory")
+public class InMemoryMessageSink implements MessageSink {
+
+    private final ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<>();
+    private final Executor acknowledger;
+
+    public InMemoryMessageSink(@Value("${publisher.sink.in-memory.latency-millis:0}") long latencyMillis) {
+        this.acknowledger = latencyMillis > 0
+                ? CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS)
+                : Runnable::run;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(List<String> batch) {
+        return CompletableFuture.runAsync(() -> messages.addAll(batch), acknowledger);
+    }
+
+    public List<String> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public void clear() {
+        messages.clear();
+    }
+}
@@ -0,0 +1,73 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Fixes the window of source rows a run of an incremental job syncs : changed after the job's high-water mark and
+ * at or before the latest change older than the commit lag when the run starts. Writers stamp LAST_UPDATED before
+ * they commit, so a row stamped just before the run starts may become visible only after it - the lag has to cover
+ * the longest transaction writing to the source, or such rows are never synced.
+ * <p>
+ * The window is saved in the job execution context right away, so that the partitions see it when run by other
+ * instances and a restart syncs the same window. {@link StagingMergeTasklet} moves the high-water mark to the end of
+ * the window in the transaction that makes the rows visible.
+ * <p>
+ * The mark is not moved chunk by chunk since the partitions commit out of order - a mark past the rows of a partition
+ * that is still running would lose them if the run failed.
+ */
+public class IncrementalWindowListener extends JobExecutionListenerSupport {
+
+    public static final String WATERMARK_FROM = "watermark.from";
+    public static final String WATERMARK_TO = "watermark.to";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalWindowListener.class);
+
+    private final JobRepository jobRepository;
+    private final WatermarkStore watermarkStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final String sourceTable;
+    private final String changedColumn;
+    private final long commitLagMillis;
+
+    public IncrementalWindowListener(JobRepository jobRepository, WatermarkStore watermarkStore,
+                                     JdbcTemplate jdbcTemplate, String sourceTable, String changedColumn,
+                                     long commitLagMillis) {
+        this.jobRepository = jobRepository;
+        this.watermarkStore = watermarkStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sourceTable = sourceTable;
+        this.changedColumn = changedColumn;
+        this.commitLagMillis = commitLagMillis;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        ExecutionContext executionContext = jobExecution.getExecutionContext();
+        if (executionContext.containsKey(WATERMARK_TO)) {
+            return;
+        }
+        String jobName = jobExecution.getJobInstance().getJobName();
+        Instant from = watermarkStore.get(jobName);
+        if (from == null) {
+            from = Instant.EPOCH;
+        }
+        Timestamp latestChange = jdbcTemplate.queryForObject("SELECT MAX(" + changedColumn + ") FROM " + sourceTable
+                + " WHERE " + changedColumn + " <= now() - ? * interval '1 millisecond'", Timestamp.class,
+                commitLagMillis);
+        Instant to = latestChange == null || latestChange.toInstant().isBefore(from) ? from : latestChange.toInstant();
+        executionContext.putString(WATERMARK_FROM, from.toString());
+        executionContext.putString(WATERMARK_TO, to.toString());
+        // otherwise saved only once the first step ends, after the partitions were handed out
+        jobRepository.updateExecutionContext(jobExecution);
+        LOGGER.info("{} syncs rows of {} changed after {} till {}", jobName, sourceTable, from, to);
+    }
+}
@@ -0,0 +1,42 @@
+package com.foo.config;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delays every execution of the delegate by a random amount, so that the replicas do not hit the job repository and
+ * the sources at the same instant.
+ * <p>
+ * The delegate is given the time it scheduled last rather than the jittered one. Otherwise a fixed-rate delegate
+ * would take the jitter as its new base and drift by the accumulated jitter.
+ */
+public class JitteredTrigger implements Trigger {
+
+    private final Trigger delegate;
+    private final long jitterMillis;
+
+    // last execution time computed by the delegate, before the jitter
+    private Date lastBaseExecutionTime;
+
+    public JitteredTrigger(Trigger delegate, long jitterMillis) {
+        this.delegate = delegate;
+        this.jitterMillis = jitterMillis;
+    }
+
+    @Override
+    public synchronized Date nextExecutionTime(TriggerContext triggerContext) {
+        TriggerContext baseContext = lastBaseExecutionTime == null ? triggerContext
+                : new SimpleTriggerContext(lastBaseExecutionTime, triggerContext.lastActualExecutionTime(),
+                triggerContext.lastCompletionTime());
+        Date next = delegate.nextExecutionTime(baseContext);
+        lastBaseExecutionTime = next;
+        if (next == null || jitterMillis <= 0) {
+            return next;
+        }
+        return new Date(next.getTime() + ThreadLocalRandom.current().nextLong(jitterMillis + 1));
+    }
+}
@@ -0,0 +1,102 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.foo.config.JobEventListener.CHANNEL;
+
+/**
+ * Completion of the jobs in {@link BatchConfiguration#jobDependencies}. Every run of an upstream job is recorded in
+ * JOB_COMPLETION_EVENT, and a completed run that wrote anything NOTIFYs its downstream jobs in the same transaction.
+ * {@link JobEventListener} on whichever instance holds a downstream job runs it right away, so the downstream no longer
+ * waits for its own schedule, and replays the events it missed while reconnecting. Upstream jobs without a path between
+ * them run concurrently as before.
+ * <p>
+ * A run found data if it changed any row. A job whose steps know how many rows they changed, rather than wrote, keeps
+ * the count in its execution context as {@value #CHANGED_ROWS} (see {@link StagingMergeTasklet}) - i.e. a full sync
+ * writes every source row again, but changes only the ones that were updated. Otherwise any write counts.
+ */
+@Component
+public class JobCompletionEvents extends JobExecutionListenerSupport {
+
+    public static final String CHANGED_ROWS = "job.changed-rows";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobCompletionEvents.class);
+
+    private static final String INSERT_EVENT = "INSERT INTO JOB_COMPLETION_EVENT (JOB_NAME, JOB_EXECUTION_ID, STATUS, "
+            + "FOUND_DATA) VALUES (?, ?, ?, ?)";
+    private static final String NOTIFY = "SELECT pg_notify(?, ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        for (String job : BatchConfiguration.jobDependencies.keySet()) {
+            checkNoCycle(job, new HashSet<>());
+        }
+    }
+
+    private static void checkNoCycle(String job, Set<String> path) {
+        if (!path.add(job)) {
+            throw new IllegalStateException("Job dependencies have a cycle through " + path);
+        }
+        for (String upstream : BatchConfiguration.jobDependencies.getOrDefault(job, List.of())) {
+            checkNoCycle(upstream, path);
+        }
+        path.remove(job);
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        String jobName = jobExecution.getJobInstance().getJobName();
+        List<String> downstreamJobs = BatchConfiguration.downstreamOf(jobName);
+        if (downstreamJobs.isEmpty()) {
+            return;
+        }
+        boolean completed = jobExecution.getStatus() == BatchStatus.COMPLETED;
+        ExecutionContext executionContext = jobExecution.getExecutionContext();
+        boolean foundData = executionContext.containsKey(CHANGED_ROWS) ? executionContext.getLong(CHANGED_ROWS) > 0
+                : jobExecution.getStepExecutions().stream()
+                        .anyMatch(stepExecution -> stepExecution.getWriteCount() > 0);
+        try {
+            transactionTemplate.execute(status -> {
+                jdbcTemplate.update(INSERT_EVENT, jobName, jobExecution.getId(),
+                        jobExecution.getStatus().name(), foundData);
+                if (completed && foundData) {
+                    // delivered on commit
+                    for (String downstreamJob : downstreamJobs) {
+                        jdbcTemplate.queryForRowSet(NOTIFY, CHANNEL, downstreamJob);
+                    }
+                }
+                return null;
+            });
+            if (completed && foundData) {
+                LOGGER.info("{} completed with data. Triggering {}", jobName, downstreamJobs);
+            }
+        } catch (RuntimeException e) {
+            // the downstream jobs still run on their own schedule
+            LOGGER.error("Unable to record the completion of {}", jobExecution.getId(), e);
+        }
+    }
+}
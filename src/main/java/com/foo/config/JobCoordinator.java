@@ -0,0 +1,57 @@
+package com.foo.config;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which instance runs which job. A job is run only by the instance holding its lock, which is kept alive by
+ * a heart beat till it is unregistered or the instance goes away.
+ * <p>
+ * Implementations are picked with {@code coordinator.backend} : dynamodb (default), postgres or in-memory.
+ */
+public interface JobCoordinator {
+
+    // Locks with this prefix are not jobs. They are per instance records advertising the load of that instance.
+    String MEMBER_LOCK_PREFIX = "member#";
+
+    default boolean registerJob(String jobName) {
+        return registerJob(jobName, false);
+    }
+
+    /**
+     * @param skipBlockingWait if true, fails right away when the lock is held by someone else instead of waiting to
+     *                         find out whether the owner is still alive. Backends that can tell an expired lease
+     *                         right away ignore this.
+     */
+    boolean registerJob(String jobName, boolean skipBlockingWait);
+
+    boolean canContinue(String jobName);
+
+    /**
+     * @return the fence of the lease held for the job. A fence that is never valid if the lock is not held.
+     */
+    LeaseFence getLeaseFence(String jobName);
+
+    void unregisterJob(String jobName);
+
+    Set<String> getHeldJobs();
+
+    String getOwnerName();
+
+    /**
+     * Publishes data (i.e. the load of this instance) in a {@link #MEMBER_LOCK_PREFIX member} lock owned by this
+     * instance. It is kept alive by the heart beat and removed when this instance goes away.
+     */
+    void advertise(byte[] data);
+
+    /**
+     * Reads all the locks - job locks as well as {@link #MEMBER_LOCK_PREFIX member} records.
+     */
+    List<LockRecord> readLocks();
+
+    /**
+     * Confirms that the owner of a lock that did not get a heart beat for a while is gone, without taking the lock
+     * over.
+     */
+    boolean confirmOrphaned(LockRecord suspect);
+}
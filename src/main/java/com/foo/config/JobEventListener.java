@@ -0,0 +1,183 @@
+package com.foo.config;
+
+import io.micrometer.core.instrument.Metrics;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Triggers the jobs scheduled with type=event as soon as their source tables change (V1_8__job_trigger_notify.sql),
+ * and the downstream jobs of {@link BatchConfiguration#jobDependencies} as soon as an upstream run completes
+ * ({@link JobCompletionEvents}), instead of waiting for the next poll. Both NOTIFY the job to trigger on
+ * {@value #CHANNEL}. Notifications for jobs this instance does not hold are ignored, every instance listens.
+ * Completions recorded while the listener was reconnecting are replayed from JOB_COMPLETION_EVENT.
+ * <p>
+ * A notification that comes while the last run is still going is kept till the run is done, so a change made during a
+ * run is not left for the fallback poll. Keeps one connection of the pool for listening, while any job is event driven.
+ */
+@Component
+public class JobEventListener implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobEventListener.class);
+    static final String CHANNEL = "datasync_job_trigger";
+    private static final String NOW = "SELECT now()";
+    // EVENT_IDs and CREATED_TIMEs are taken before the insert commits, so a completion that committed late carries an
+    // earlier one than those already seen. Hence the overlap. Replaying a completion twice only triggers a run more.
+    private static final String MISSED_COMPLETIONS = "SELECT DISTINCT JOB_NAME FROM JOB_COMPLETION_EVENT "
+            + "WHERE CREATED_TIME > ? - ? * interval '1 second' AND STATUS = 'COMPLETED' AND FOUND_DATA";
+
+    @Value("${job.trigger.listen-timeout-millis:1000}")
+    private int listenTimeoutMillis;
+
+    @Value("${job.trigger.replay-overlap-seconds:300}")
+    private int replayOverlapSeconds;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SyncScheduler syncScheduler;
+
+    @Autowired
+    private JobScheduleFactory jobScheduleFactory;
+
+    @Autowired
+    private JobExecutionStateCache jobExecutionStateCache;
+
+    // notified while the last run was still going
+    private final Set<String> pendingJobs = new HashSet<>();
+    // database time when listening started. null till the first connect
+    private Timestamp listenedFrom;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public void start() {
+        if (BatchConfiguration.jobs.stream().noneMatch(this::isTriggeredOnEvents)) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this, "JOB-EVENT-LISTENER");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                LOGGER.info("Listening on {}", CHANNEL);
+                // anything changed while we were not listening
+                for (String job : BatchConfiguration.jobs) {
+                    if (jobScheduleFactory.isEventDriven(job)) {
+                        pendingJobs.add(job);
+                    }
+                }
+                pendingJobs.addAll(missedDownstreamJobs(connection));
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(listenTimeoutMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            pendingJobs.add(notification.getParameter());
+                        }
+                    }
+                    triggerPendingJobs();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("Listening on {} failed. Reconnecting", CHANNEL, e);
+                try {
+                    TimeUnit.SECONDS.sleep(5);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // downstream jobs of the upstream runs that completed with data since the last connect, less the overlap. All of
+    // them on the first. Completions committed from here on are notified on the connection that is listening already.
+    private Set<String> missedDownstreamJobs(Connection connection) throws SQLException {
+        Timestamp now;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(NOW)) {
+            resultSet.next();
+            now = resultSet.getTimestamp(1);
+        }
+        Set<String> downstreamJobs = new HashSet<>();
+        if (listenedFrom == null) {
+            downstreamJobs.addAll(BatchConfiguration.jobDependencies.keySet());
+        } else {
+            try (PreparedStatement statement = connection.prepareStatement(MISSED_COMPLETIONS)) {
+                statement.setTimestamp(1, listenedFrom);
+                statement.setInt(2, replayOverlapSeconds);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        downstreamJobs.addAll(BatchConfiguration.downstreamOf(resultSet.getString(1)));
+                    }
+                }
+            }
+            if (!downstreamJobs.isEmpty()) {
+                LOGGER.info("Replaying completions missed while reconnecting for {}", downstreamJobs);
+            }
+        }
+        listenedFrom = now;
+        return downstreamJobs;
+    }
+
+    private void triggerPendingJobs() {
+        Iterator<String> iterator = pendingJobs.iterator();
+        while (iterator.hasNext()) {
+            String job = iterator.next();
+            if (!isTriggeredOnEvents(job) || !syncScheduler.getScheduledJobs().contains(job)) {
+                iterator.remove();
+                continue;
+            }
+            if (Boolean.TRUE.equals(jobExecutionStateCache.isLastExecutionRunning(job))) {
+                continue;
+            }
+            iterator.remove();
+            if (syncScheduler.triggerNow(job)) {
+                LOGGER.debug("Triggered {} on change", job);
+                Metrics.globalRegistry.counter("batch.scheduler.event.triggers", "job", job).increment();
+            }
+        }
+    }
+
+    private boolean isTriggeredOnEvents(String job) {
+        return jobScheduleFactory.isEventDriven(job) || BatchConfiguration.jobDependencies.containsKey(job);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+}
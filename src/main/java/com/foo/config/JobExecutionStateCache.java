@@ -0,0 +1,134 @@
+package com.foo.config;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last execution state per job, kept up to date by the executions launched by this instance. Saves a round trip to
+ * the job repository on every tick of {@link JobSyncRunnable}. Entries are invalidated when the ownership of the job
+ * changes, since executions launched by other instances are not seen here.
+ */
+@Component
+public class JobExecutionStateCache implements JobExecutionListener {
+
+    private final Map<String, ExecutionState> jobNameToLastExecution = new ConcurrentHashMap<>();
+    // outcome of the runs completed by this instance. Not invalidated on ownership change.
+    private final Map<String, Boolean> jobNameToLastRunFoundData = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> jobNameToCompletedRuns = new ConcurrentHashMap<>();
+    private final Map<String, Long> jobNameToLastLaunchMillis = new ConcurrentHashMap<>();
+    private final Map<String, Long> jobNameToLastCompletionMillis = new ConcurrentHashMap<>();
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        jobNameToLastExecution.compute(jobExecution.getJobInstance().getJobName(), (jobName, previous) ->
+                new ExecutionState(jobExecution.getId(), true, previous == null ? -1 : previous.averageRunMillis));
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        long runMillis = jobExecution.getStartTime() == null || jobExecution.getEndTime() == null ? -1
+                : jobExecution.getEndTime().getTime() - jobExecution.getStartTime().getTime();
+        String jobName = jobExecution.getJobInstance().getJobName();
+        jobNameToLastExecution.compute(jobName, (name, previous) ->
+                new ExecutionState(jobExecution.getId(), false,
+                        averageRunMillis(previous == null ? -1 : previous.averageRunMillis, runMillis)));
+        boolean foundData = jobExecution.getStepExecutions().stream()
+                .anyMatch(stepExecution -> stepExecution.getReadCount() > 0 || stepExecution.getWriteCount() > 0);
+        jobNameToLastRunFoundData.put(jobName, foundData);
+        jobNameToCompletedRuns.computeIfAbsent(jobName, name -> new AtomicLong()).incrementAndGet();
+        jobNameToLastCompletionMillis.put(jobName, System.currentTimeMillis());
+    }
+
+    /**
+     * Called right after an instance is launched, since the launch is asynchronous and {@link #beforeJob} may come
+     * after the next tick. The run may as well be over already, in which case its ended state is kept.
+     */
+    public void launched(String jobName, Long jobExecutionId) {
+        jobNameToLastLaunchMillis.put(jobName, System.currentTimeMillis());
+        jobNameToLastExecution.compute(jobName, (name, previous) -> {
+            // execution ids grow, so a state of this execution or a later one is newer than the launch
+            if (previous != null && previous.executionId != null && previous.executionId >= jobExecutionId) {
+                return previous;
+            }
+            return new ExecutionState(jobExecutionId, true, previous == null ? -1 : previous.averageRunMillis);
+        });
+    }
+
+    /**
+     * Caches the state read from the job repository on a cache miss.
+     */
+    public void loaded(String jobName, boolean running) {
+        jobNameToLastExecution.putIfAbsent(jobName, new ExecutionState(null, running, -1));
+    }
+
+    /**
+     * @return whether the last execution is running. null if this instance does not know.
+     */
+    public Boolean isLastExecutionRunning(String jobName) {
+        ExecutionState executionState = jobNameToLastExecution.get(jobName);
+        return executionState == null ? null : executionState.running;
+    }
+
+    /**
+     * @return moving average of the run durations seen by this instance. -1 if none.
+     */
+    public long getAverageRunMillis(String jobName) {
+        ExecutionState executionState = jobNameToLastExecution.get(jobName);
+        return executionState == null ? -1 : executionState.averageRunMillis;
+    }
+
+    /**
+     * @return whether the last run completed by this instance read or wrote anything
+     */
+    public boolean lastRunFoundData(String jobName) {
+        return jobNameToLastRunFoundData.getOrDefault(jobName, false);
+    }
+
+    public long getCompletedRuns(String jobName) {
+        AtomicLong completedRuns = jobNameToCompletedRuns.get(jobName);
+        return completedRuns == null ? 0 : completedRuns.get();
+    }
+
+    /**
+     * @return when this instance last launched the job. 0 if it never did
+     */
+    public long getLastLaunchMillis(String jobName) {
+        return jobNameToLastLaunchMillis.getOrDefault(jobName, 0L);
+    }
+
+    /**
+     * @return when a run of the job launched by this instance last completed. 0 if none did
+     */
+    public long getLastCompletionMillis(String jobName) {
+        return jobNameToLastCompletionMillis.getOrDefault(jobName, 0L);
+    }
+
+    public void invalidate(String jobName) {
+        jobNameToLastExecution.remove(jobName);
+    }
+
+    private static long averageRunMillis(long averageRunMillis, long runMillis) {
+        if (runMillis < 0) {
+            return averageRunMillis;
+        }
+        return averageRunMillis < 0 ? runMillis : (averageRunMillis * 3 + runMillis) / 4;
+    }
+
+    private static class ExecutionState {
+        // null when loaded from the job repository
+        private final Long executionId;
+        private final boolean running;
+        private final long averageRunMillis;
+
+        private ExecutionState(Long executionId, boolean running, long averageRunMillis) {
+            this.executionId = executionId;
+            this.running = running;
+            this.averageRunMillis = averageRunMillis;
+        }
+    }
+}
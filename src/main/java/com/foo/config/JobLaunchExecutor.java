@@ -0,0 +1,133 @@
+package com.foo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor the jobs are launched on. Bounded pool sized to the jobs held by this instance with a bounded queue in
+ * front of it, instead of a new thread per launch. {@link JobSyncRunnable} skips a tick when the queue is full.
+ * <p>
+ * With {@code launcher.virtual-threads=true} the pool threads are virtual threads, if the JDK supports them.
+ */
+@Component
+public class JobLaunchExecutor implements TaskExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobLaunchExecutor.class);
+
+    @Value("${launcher.pool-size:4}")
+    private int initialPoolSize;
+
+    @Value("${launcher.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${launcher.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    private ThreadPoolExecutor executor;
+    private Timer launchLatency;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(initialPoolSize, initialPoolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), threadFactory());
+        executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("batch.launcher.queue.depth", executor, e -> e.getQueue().size())
+                .description("Job launches waiting for a thread")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("batch.launcher.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Jobs running on the launcher")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("batch.launcher.pool.size", executor, ThreadPoolExecutor::getMaximumPoolSize)
+                .register(Metrics.globalRegistry);
+        launchLatency = Timer.builder("batch.launcher.latency")
+                .description("Time from the launch till the job starts running on a thread")
+                .register(Metrics.globalRegistry);
+    }
+
+    private ThreadFactory threadFactory() {
+        if (virtualThreads) {
+            try {
+                // Thread.ofVirtual().name("EXEC-JL-", 0).factory() on JDK 21+, via reflection since we build for 11
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "EXEC-JL-", 0L);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.warn("Virtual threads are not supported by this JDK. Falling back to platform threads");
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory defaultThreadFactory = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread thread = defaultThreadFactory.newThread(runnable);
+            thread.setName("EXEC-JL-" + threadCount.incrementAndGet());
+            return thread;
+        };
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                launchLatency.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                task.run();
+            });
+        } catch (RejectedExecutionException e) {
+            throw new TaskRejectedException("Job launcher is saturated", e);
+        }
+    }
+
+    /**
+     * @return false if a launch now would be rejected
+     */
+    public boolean hasCapacity() {
+        return executor.getQueue().remainingCapacity() > 0 && !executor.isShutdown();
+    }
+
+    /**
+     * One thread per job held. Called whenever jobs are acquired or released.
+     */
+    public synchronized void resize(int poolSize) {
+        int size = Math.max(1, poolSize);
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // running jobs are let to finish
+        executor.shutdown();
+    }
+}
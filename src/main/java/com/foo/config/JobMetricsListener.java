@@ -0,0 +1,34 @@
+package com.foo.config;
+
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the item counts of every step to {@code batch.step.items}, tagged with the kind of count (read, write, filter,
+ * skip). Job and step durations are recorded by Spring Batch itself as {@code spring.batch.job} and
+ * {@code spring.batch.step}.
+ */
+@Component
+public class JobMetricsListener extends JobExecutionListenerSupport {
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        String jobName = jobExecution.getJobInstance().getJobName();
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            increment(jobName, stepExecution, "read", stepExecution.getReadCount());
+            increment(jobName, stepExecution, "write", stepExecution.getWriteCount());
+            increment(jobName, stepExecution, "filter", stepExecution.getFilterCount());
+            increment(jobName, stepExecution, "skip", stepExecution.getSkipCount());
+        }
+    }
+
+    private static void increment(String jobName, StepExecution stepExecution, String kind, int count) {
+        if (count > 0) {
+            Metrics.globalRegistry.counter("batch.step.items",
+                    "job", jobName, "step", stepExecution.getStepName(), "kind", kind).increment(count);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.foo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.foo.config.JobCoordinator.MEMBER_LOCK_PREFIX;
+
+/**
+ * Rendezvous (highest random weight) placement of the jobs over the live instances, read from the
+ * {@link JobCoordinator#MEMBER_LOCK_PREFIX member} records of the lock table. Every instance computes the same
+ * preferred owner for a job from the same member list without talking to the others. When an instance joins or
+ * leaves, only the jobs it wins or held change their preferred owner - about 1/K of them with K instances.
+ * <p>
+ * With {@code lock.acquisition.placement=rendezvous}, {@link SyncScheduler} tries the jobs this instance is preferred
+ * for first at start-up and {@link LockRebalancer} moves a job to the peer it prefers.
+ */
+@Component
+public class JobPlacement {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPlacement.class);
+    public static final String RENDEZVOUS = "rendezvous";
+
+    // shuffle (see lock.acquisition.shuffle) or rendezvous
+    @Value("${lock.acquisition.placement:shuffle}")
+    private String placement;
+
+    // time given to the instances started together to write their member records before reading them
+    @Value("${lock.acquisition.settle-millis:2000}")
+    private long settleMillis;
+
+    // advertisements older than this are from instances that are gone
+    @Value("${rebalancer.stale-after-seconds:90}")
+    private long staleAfterSeconds;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private TokenBudget tokenBudget;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public boolean isRendezvous() {
+        return RENDEZVOUS.equals(placement);
+    }
+
+    /**
+     * Writes the member record of this instance, holding no jobs yet, and reads the members once the others started
+     * along with it had the time to do the same.
+     *
+     * @return owners of the live members, this instance included
+     */
+    public Collection<String> join() throws IOException, InterruptedException {
+        PodLoad podLoad = new PodLoad();
+        podLoad.setOwner(jobCoordinator.getOwnerName());
+        podLoad.setFreeSizes(tokenBudget.freeSizes());
+        podLoad.setPublishedAt(System.currentTimeMillis());
+        jobCoordinator.advertise(objectMapper.writeValueAsBytes(podLoad));
+        TimeUnit.MILLISECONDS.sleep(settleMillis);
+        Collection<String> members = placementMembers(readLockTable(new HashMap<>()));
+        LOGGER.info("Placing jobs over {}", members);
+        return members;
+    }
+
+    /**
+     * Reads the lock table.
+     *
+     * @param jobToOwner filled with the owner of every job lock
+     * @return live members, by owner
+     */
+    public Map<String, PodLoad> readLockTable(Map<String, String> jobToOwner) {
+        Map<String, PodLoad> liveMembers = new HashMap<>();
+        long staleBefore = System.currentTimeMillis() - staleAfterSeconds * 1000;
+        for (LockRecord lockRecord : jobCoordinator.readLocks()) {
+            if (!lockRecord.getName().startsWith(MEMBER_LOCK_PREFIX)) {
+                jobToOwner.put(lockRecord.getName(), lockRecord.getOwner());
+                continue;
+            }
+            if (lockRecord.getData() == null) {
+                continue;
+            }
+            try {
+                PodLoad podLoad = objectMapper.readValue(lockRecord.getData(), PodLoad.class);
+                if (podLoad.getPublishedAt() >= staleBefore) {
+                    liveMembers.put(podLoad.getOwner(), podLoad);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring unreadable member record {}", lockRecord.getName(), e);
+            }
+        }
+        return liveMembers;
+    }
+
+    /**
+     * @return owners the jobs are placed over - the live members that are not draining, and this instance
+     */
+    public Collection<String> placementMembers(Map<String, PodLoad> liveMembers) {
+        Collection<String> members = liveMembers.values().stream()
+                .filter(podLoad -> !podLoad.isDraining())
+                .map(PodLoad::getOwner)
+                .collect(Collectors.toCollection(TreeSet::new));
+        members.add(jobCoordinator.getOwnerName());
+        return members;
+    }
+
+    public static String preferredOwner(String job, Collection<String> members) {
+        return members.stream()
+                .max(Comparator.comparingLong((String member) -> weight(member, job))
+                        .thenComparing(Comparator.naturalOrder()))
+                .orElse(null);
+    }
+
+    public boolean isPreferred(String job, Collection<String> members) {
+        return jobCoordinator.getOwnerName().equals(preferredOwner(job, members));
+    }
+
+    /**
+     * @return the jobs from the one this instance weighs the most to the one it weighs the least. The ones it is the
+     * preferred owner of come first.
+     */
+    public List<String> order(Collection<String> jobs, Collection<String> members) {
+        String owner = jobCoordinator.getOwnerName();
+        List<String> orderedJobs = new ArrayList<>(jobs);
+        orderedJobs.sort(Comparator.comparingLong((String job) -> rank(owner, job, members))
+                .thenComparing(Comparator.comparingLong((String job) -> weight(owner, job)).reversed()));
+        return orderedJobs;
+    }
+
+    // number of members that weigh the job more than the owner. 0 for the preferred owner.
+    private static long rank(String owner, String job, Collection<String> members) {
+        long ownerWeight = weight(owner, job);
+        return members.stream()
+                .filter(member -> !member.equals(owner))
+                .filter(member -> weight(member, job) > ownerWeight
+                        || weight(member, job) == ownerWeight && member.compareTo(owner) > 0)
+                .count();
+    }
+
+    // the member and the job are hashed apart and mixed, so that names sharing a suffix (-job) do not line up
+    static long weight(String member, String job) {
+        return mix(mix(fnv(member)) ^ fnv(job));
+    }
+
+    private static long fnv(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // murmur3 finalizer
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,180 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Deletes job executions that ended more than {@code retention.days} ago, with their params, step executions and
+ * contexts, and then the job instances left without executions. Works in batches of {@code retention.batch-size}
+ * executions, each in a transaction of its own, so that it never holds locks on the batch tables for long.
+ * <p>
+ * The last instance of every job is kept whatever its age - {@link JobSyncRunnable} looks at it. With
+ * {@code retention.archive=true} a summary row of each execution is kept in BATCH_JOB_EXECUTION_ARCHIVE.
+ * <p>
+ * In {@code repository.mode=lightweight}, only the last {@code repository.ephemeral-keep-executions} ended executions
+ * of each of the ephemeral jobs are kept, whatever their age.
+ * <p>
+ * Runs as a step of monitoring-job, so only one instance purges at a time.
+ */
+@Component
+public class JobRepositoryRetention {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobRepositoryRetention.class);
+
+    private static final String SELECT_EXPIRED = "SELECT E.JOB_EXECUTION_ID FROM BATCH_JOB_EXECUTION E "
+            + "WHERE E.END_TIME < ? AND E.JOB_INSTANCE_ID NOT IN ("
+            + "SELECT MAX(I.JOB_INSTANCE_ID) FROM BATCH_JOB_INSTANCE I GROUP BY I.JOB_NAME) "
+            + "ORDER BY E.END_TIME LIMIT ?";
+    private static final String SELECT_EPHEMERAL_EXPIRED = "SELECT E.JOB_EXECUTION_ID FROM BATCH_JOB_EXECUTION E "
+            + "JOIN BATCH_JOB_INSTANCE I ON I.JOB_INSTANCE_ID = E.JOB_INSTANCE_ID "
+            + "WHERE I.JOB_NAME = ? AND E.END_TIME IS NOT NULL "
+            + "ORDER BY E.JOB_EXECUTION_ID DESC OFFSET ? LIMIT ?";
+    private static final String ARCHIVE = "INSERT INTO BATCH_JOB_EXECUTION_ARCHIVE (JOB_EXECUTION_ID, JOB_NAME, "
+            + "STATUS, EXIT_CODE, START_TIME, END_TIME, READ_COUNT, WRITE_COUNT, ARCHIVED_TIME) "
+            + "SELECT E.JOB_EXECUTION_ID, I.JOB_NAME, E.STATUS, E.EXIT_CODE, E.START_TIME, E.END_TIME, "
+            + "(SELECT SUM(S.READ_COUNT) FROM BATCH_STEP_EXECUTION S WHERE S.JOB_EXECUTION_ID = E.JOB_EXECUTION_ID), "
+            + "(SELECT SUM(S.WRITE_COUNT) FROM BATCH_STEP_EXECUTION S WHERE S.JOB_EXECUTION_ID = E.JOB_EXECUTION_ID), "
+            + "now() FROM BATCH_JOB_EXECUTION E JOIN BATCH_JOB_INSTANCE I ON I.JOB_INSTANCE_ID = E.JOB_INSTANCE_ID "
+            + "WHERE E.JOB_EXECUTION_ID = ANY(?) ON CONFLICT (JOB_EXECUTION_ID) DO NOTHING";
+    private static final String SELECT_INSTANCES = "SELECT DISTINCT JOB_INSTANCE_ID FROM BATCH_JOB_EXECUTION "
+            + "WHERE JOB_EXECUTION_ID = ANY(?)";
+    private static final List<String> DELETES = List.of(
+            "DELETE FROM JOB_COMPLETION_EVENT WHERE JOB_EXECUTION_ID = ANY(?)",
+            "DELETE FROM BATCH_STEP_EXECUTION_CONTEXT WHERE STEP_EXECUTION_ID IN ("
+                    + "SELECT STEP_EXECUTION_ID FROM BATCH_STEP_EXECUTION WHERE JOB_EXECUTION_ID = ANY(?))",
+            "DELETE FROM BATCH_STEP_EXECUTION WHERE JOB_EXECUTION_ID = ANY(?)",
+            "DELETE FROM BATCH_JOB_EXECUTION_CONTEXT WHERE JOB_EXECUTION_ID = ANY(?)",
+            "DELETE FROM BATCH_JOB_EXECUTION_PARAMS WHERE JOB_EXECUTION_ID = ANY(?)",
+            "DELETE FROM BATCH_JOB_EXECUTION WHERE JOB_EXECUTION_ID = ANY(?)");
+    private static final String DELETE_EMPTY_INSTANCES = "DELETE FROM BATCH_JOB_INSTANCE I "
+            + "WHERE I.JOB_INSTANCE_ID = ANY(?) AND NOT EXISTS ("
+            + "SELECT 1 FROM BATCH_JOB_EXECUTION E WHERE E.JOB_INSTANCE_ID = I.JOB_INSTANCE_ID)";
+
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${retention.days:7}")
+    private long retentionDays;
+
+    @Value("${retention.batch-size:500}")
+    private int batchSize;
+
+    // bounds the time a single run of monitoring-job spends on this
+    @Value("${retention.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${retention.archive:false}")
+    private boolean archive;
+
+    @Value("${repository.mode:full}")
+    private String repositoryMode;
+
+    @Value("${repository.ephemeral-jobs:}")
+    private String[] ephemeralJobs;
+
+    @Value("${repository.ephemeral-keep-executions:100}")
+    private int ephemeralKeepExecutions;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @return number of job executions deleted
+     */
+    public int purge() {
+        if (!enabled) {
+            return 0;
+        }
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+        int purged = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer deleted = transactionTemplate.execute(status -> purgeBatch(cutoff));
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+        }
+        if (purged > 0) {
+            LOGGER.info("Purged {} job executions that ended before {}", purged, cutoff);
+        }
+        if (BatchConfiguration.LIGHTWEIGHT_REPOSITORY.equals(repositoryMode)) {
+            for (String jobName : ephemeralJobs) {
+                purged += purgeEphemeral(jobName);
+            }
+        }
+        return purged;
+    }
+
+    private int purgeEphemeral(String jobName) {
+        int purged = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer deleted = transactionTemplate.execute(status -> purgeBatch(jdbcTemplate.queryForList(
+                    SELECT_EPHEMERAL_EXPIRED, Long.class, jobName, ephemeralKeepExecutions, batchSize)));
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+        }
+        if (purged > 0) {
+            LOGGER.info("Purged {} job executions of {} beyond the last {}", purged, jobName,
+                    ephemeralKeepExecutions);
+        }
+        return purged;
+    }
+
+    private int purgeBatch(Timestamp cutoff) {
+        return purgeBatch(jdbcTemplate.queryForList(SELECT_EXPIRED, Long.class, cutoff, batchSize));
+    }
+
+    private int purgeBatch(List<Long> jobExecutionIds) {
+        if (jobExecutionIds.isEmpty()) {
+            return 0;
+        }
+        Long[] executionIds = jobExecutionIds.toArray(new Long[0]);
+        if (archive) {
+            updateWithIds(ARCHIVE, executionIds);
+        }
+        List<Long> jobInstanceIds = jdbcTemplate.query(SELECT_INSTANCES,
+                preparedStatement -> setIds(preparedStatement, executionIds),
+                (resultSet, rowNum) -> resultSet.getLong(1));
+        for (String delete : DELETES) {
+            updateWithIds(delete, executionIds);
+        }
+        updateWithIds(DELETE_EMPTY_INSTANCES, jobInstanceIds.toArray(new Long[0]));
+        return executionIds.length;
+    }
+
+    private void updateWithIds(String sql, Long[] ids) {
+        jdbcTemplate.update(sql, preparedStatement -> setIds(preparedStatement, ids));
+    }
+
+    private static void setIds(PreparedStatement preparedStatement, Long[] ids) throws SQLException {
+        preparedStatement.setArray(1, preparedStatement.getConnection().createArrayOf("bigint", ids));
+    }
+}
@@ -0,0 +1,150 @@
+package com.foo.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the trigger of each job from {@code job.schedule.<jobName>.*}, falling back to
+ * {@code job.schedule.default.*}.
+ * <ul>
+ *     <li>type : fixed-delay (default), fixed-rate, cron, adaptive or event</li>
+ *     <li>interval-seconds : for fixed-delay and fixed-rate. Defaults to 30</li>
+ *     <li>cron : for cron</li>
+ *     <li>min-interval-seconds, max-interval-seconds : for adaptive. See {@link AdaptiveTrigger}</li>
+ *     <li>fallback-interval-seconds : for event. The job is run when its source tables change (see
+ *     {@link JobEventListener}) and polled at this interval in case a notification is missed. Defaults to 300</li>
+ *     <li>jitter-millis : random delay added to every execution. See {@link JitteredTrigger}</li>
+ * </ul>
+ */
+@Component
+public class JobScheduleFactory {
+
+    public static final String FIXED_DELAY = "fixed-delay";
+    public static final String FIXED_RATE = "fixed-rate";
+    public static final String CRON = "cron";
+    public static final String ADAPTIVE = "adaptive";
+    public static final String EVENT = "event";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private JobExecutionStateCache jobExecutionStateCache;
+
+    /**
+     * Fails the start-up on a schedule that cannot be built, instead of when the job is first scheduled.
+     */
+    @PostConstruct
+    public void validate() {
+        for (String jobName : BatchConfiguration.jobs) {
+            String type = property(jobName, "type", FIXED_DELAY);
+            if (!List.of(FIXED_DELAY, FIXED_RATE, CRON, ADAPTIVE, EVENT).contains(type)) {
+                throw new IllegalStateException("Unknown schedule type " + type + " for " + jobName);
+            }
+            if (CRON.equals(type)) {
+                try {
+                    new CronSequenceGenerator(cron(jobName));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("Invalid job.schedule." + jobName + ".cron for " + jobName, e);
+                }
+            }
+        }
+    }
+
+    public Trigger triggerFor(String jobName) {
+        String type = property(jobName, "type", FIXED_DELAY);
+        Trigger trigger;
+        switch (type) {
+            case FIXED_DELAY:
+            case FIXED_RATE:
+                PeriodicTrigger periodicTrigger = new PeriodicTrigger(
+                        Long.parseLong(property(jobName, "interval-seconds", "30")), TimeUnit.SECONDS);
+                periodicTrigger.setFixedRate(FIXED_RATE.equals(type));
+                trigger = periodicTrigger;
+                break;
+            case CRON:
+                trigger = new CronTrigger(cron(jobName));
+                break;
+            case EVENT:
+                trigger = new PeriodicTrigger(fallbackIntervalSeconds(jobName), TimeUnit.SECONDS);
+                break;
+            case ADAPTIVE:
+                trigger = new AdaptiveTrigger(jobName, jobExecutionStateCache,
+                        TimeUnit.SECONDS.toMillis(Long.parseLong(property(jobName, "min-interval-seconds", "5"))),
+                        TimeUnit.SECONDS.toMillis(Long.parseLong(property(jobName, "max-interval-seconds", "300"))));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown schedule type " + type + " for " + jobName);
+        }
+        long jitterMillis = Long.parseLong(property(jobName, "jitter-millis", "0"));
+        if (jitterMillis > 0) {
+            trigger = new JitteredTrigger(trigger, jitterMillis);
+        }
+        return new SkewRecordingTrigger(jobName, trigger);
+    }
+
+    /**
+     * @return the longest time expected between two runs of the job with its schedule, jitter included
+     */
+    public long expectedIntervalMillis(String jobName) {
+        String type = property(jobName, "type", FIXED_DELAY);
+        long intervalMillis;
+        switch (type) {
+            case CRON:
+                CronSequenceGenerator cron = new CronSequenceGenerator(cron(jobName));
+                Date next = cron.next(new Date());
+                intervalMillis = cron.next(next).getTime() - next.getTime();
+                break;
+            case EVENT:
+                intervalMillis = TimeUnit.SECONDS.toMillis(fallbackIntervalSeconds(jobName));
+                break;
+            case ADAPTIVE:
+                intervalMillis = TimeUnit.SECONDS.toMillis(
+                        Long.parseLong(property(jobName, "max-interval-seconds", "300")));
+                break;
+            default:
+                intervalMillis = TimeUnit.SECONDS.toMillis(
+                        Long.parseLong(property(jobName, "interval-seconds", "30")));
+        }
+        return intervalMillis + Long.parseLong(property(jobName, "jitter-millis", "0"));
+    }
+
+    public boolean isEventDriven(String jobName) {
+        return EVENT.equals(property(jobName, "type", FIXED_DELAY));
+    }
+
+    private String cron(String jobName) {
+        String cron = property(jobName, "cron", null);
+        if (cron == null) {
+            throw new IllegalStateException("job.schedule." + jobName + ".cron is required for " + jobName
+                    + " with type=cron");
+        }
+        return cron;
+    }
+
+    private long fallbackIntervalSeconds(String jobName) {
+        return Long.parseLong(property(jobName, "fallback-interval-seconds", "300"));
+    }
+
+    /**
+     * @return a short description of the schedule for logging
+     */
+    public String describe(String jobName) {
+        return property(jobName, "type", FIXED_DELAY) + " jitter " + property(jobName, "jitter-millis", "0") + "ms";
+    }
+
+    private String property(String jobName, String key, String defaultValue) {
+        return environment.getProperty("job.schedule." + jobName + "." + key,
+                environment.getProperty("job.schedule.default." + key, defaultValue));
+    }
+}
@@ -0,0 +1,22 @@
+package com.foo.config;
+
+/**
+ * Size class of a dataset (job). Tokens can be configured per size class so that a replica does not end up with
+ * more heavy datasets than it can handle.
+ */
+public enum JobSize {
+    S(1),
+    M(2),
+    L(4);
+
+    // relative load of a dataset of this size. Used to compare load across instances.
+    private final int weight;
+
+    JobSize(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
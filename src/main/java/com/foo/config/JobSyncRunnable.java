@@ -1,5 +1,6 @@
 package com.foo.config;
 
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.*;
@@ -12,8 +13,12 @@ import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static com.foo.config.DynamoDbConfiguration.DYNAMO_DB_LEASE_DURATION_IN_SECONDS;
+import static com.foo.config.FencingJobParametersIncrementer.FENCING_TOKEN;
+import static com.foo.config.FencingJobParametersIncrementer.LOCK_OWNER;
 
 /**
  * Runnable that starts the next instance of the job that is assigned for.
@@ -26,53 +31,107 @@ public class JobSyncRunnable implements Runnable {
     private final JobExplorer jobExplorer;
     private final JobOperator jobOperator;
     private final JobRepository jobRepository;
-    private final DynamoDBJobCoordinator dynamoDBJobCoordinator;
+    private final JobCoordinator jobCoordinator;
+    private final JobExecutionStateCache jobExecutionStateCache;
+    private final JobLaunchExecutor jobLaunchExecutor;
+
+    // a tick triggered by an event can overlap with a scheduled one
+    private final AtomicBoolean ticking = new AtomicBoolean();
+
+    // read by the SchedulerWatchdog
+    private volatile long lastTickCompletedMillis;
+
+    // only touched by the thread that won the ticking flag
+    private boolean abandonedJobsChecked;
 
     public JobSyncRunnable(String jobName,
                            JobExplorer jobExplorer,
                            JobOperator jobOperator,
                            JobRepository jobRepository,
-                           DynamoDBJobCoordinator dynamoDBJobCoordinator) {
+                           JobCoordinator jobCoordinator,
+                           JobExecutionStateCache jobExecutionStateCache,
+                           JobLaunchExecutor jobLaunchExecutor) {
         this.jobName = jobName;
         this.jobExplorer = jobExplorer;
         this.jobOperator = jobOperator;
         this.jobRepository = jobRepository;
-        this.dynamoDBJobCoordinator = dynamoDBJobCoordinator;
-        checkForAbandonedJobs();
+        this.jobCoordinator = jobCoordinator;
+        this.jobExecutionStateCache = jobExecutionStateCache;
+        this.jobLaunchExecutor = jobLaunchExecutor;
+        // ownership changed. whatever was cached for this job may have been run by someone else since.
+        jobExecutionStateCache.invalidate(jobName);
     }
 
-    // TODO: How about 2 kinds of locks? one to assign jobs to instances and another to acquire before each run for that job within that instance?
-    //  Then we need to ensure trade-job-owner-lock and trade-run-lock are possessed by the same owner. Nah.
-    // TODO: How about tracking the owner at the job execution? that way, when you are checking isLastJobExecutionStillRunning, if the last job execution is triggered by this.owner, it is okay to wait.
-    //  else assume that it is abandoned and cleanUpAbandonedJobs() -> I am leaning towards this approach since it is cleaner than the one implemented here.
+    // TODO: How about 2 kinds of locks? one to assign jobs to instances and another to acquire before each run for
+    //  that job within that instance? Then we need to ensure trade-job-owner-lock and trade-run-lock are possessed by
+    //  the same owner. Nah.
+    // Owner and fencing token are now tracked at the job execution (FencingJobParametersIncrementer).
+    // See checkForAbandonedJobs.
     @Override
     public void run() {
+        if (!ticking.compareAndSet(false, true)) {
+            LOGGER.info("A run of {} is already being triggered. Skipping", jobName);
+            countTick("overlap");
+            return;
+        }
         try {
-            boolean canContinue = dynamoDBJobCoordinator.canContinue(jobName);
+            if (!abandonedJobsChecked) {
+                // done on the first tick rather than on construction, which may be the single watchdog thread. The
+                // grace period can take a couple of lease durations and nothing is launched before it is over.
+                checkForAbandonedJobs();
+                abandonedJobsChecked = true;
+            }
+            boolean canContinue = jobCoordinator.canContinue(jobName);
             if (canContinue) {
                 LOGGER.info("Lock for {} is still alive. Proceeding with run..", jobName);
                 if (isLastJobExecutionStillRunning(jobName)) {
                     LOGGER.info("Last execution is still not done. Quitting");
+                    countTick("running");
+                    return;
+                }
+                if (!jobLaunchExecutor.hasCapacity()) {
+                    LOGGER.warn("Job launcher is saturated. Skipping this run of {}", jobName);
+                    countTick("saturated");
                     return;
                 }
                 Long jobExecutionId = this.jobOperator.startNextInstance(jobName);
+                jobExecutionStateCache.launched(jobName, jobExecutionId);
+                countTick("launched");
                 LOGGER.info("Triggered {} for Job : {}", jobExecutionId, jobName);
             } else {
-                LOGGER.error("Job: {} cannot continue since lock is expired. This runnable is triggered only after acquiring the lock. " +
-                        "With the heart beat for lock renewal at the background, this scenario ideally shouldn't occur. Trying to register {} again..", jobName, jobName);
+                LOGGER.error("Job: {} cannot continue since lock is expired. This runnable is triggered only after "
+                        + "acquiring the lock. With the heart beat for lock renewal at the background, this scenario "
+                        + "ideally shouldn't occur. Trying to register {} again..", jobName, jobName);
+                countTick("lock-expired");
 
-                boolean registerJob = dynamoDBJobCoordinator.registerJob(jobName);
+                boolean registerJob = jobCoordinator.registerJob(jobName);
                 if (!registerJob) {
                     LOGGER.info("Couldn't register the job {} again", jobName);
                 } else {
+                    jobExecutionStateCache.invalidate(jobName);
                     checkForAbandonedJobs();
                 }
             }
         } catch (Throwable e) {
-            e.printStackTrace();
+            LOGGER.error("Run of {} failed", jobName, e);
+            countTick("error");
+        } finally {
+            lastTickCompletedMillis = System.currentTimeMillis();
+            ticking.set(false);
         }
     }
 
+    /**
+     * @return when the last tick completed, successfully or not. 0 if there was none yet
+     */
+    public long getLastTickCompletedMillis() {
+        return lastTickCompletedMillis;
+    }
+
+    private void countTick(String outcome) {
+        Metrics.globalRegistry.counter("batch.scheduler.tick", "job", jobName, "outcome", outcome).increment();
+    }
+
     private JobInstance getTheLastJobInstance(String job) {
         // this returns the job instances in decreasing order of created time. this way, we are asking
         // for the last instance triggered. that's why we don't retry any job.
@@ -84,20 +143,46 @@ public class JobSyncRunnable implements Runnable {
     }
 
     private boolean isLastJobExecutionStillRunning(String jobName) {
+        Boolean cached = jobExecutionStateCache.isLastExecutionRunning(jobName);
+        if (cached != null) {
+            return cached;
+        }
         JobInstance jobInstance = getTheLastJobInstance(jobName);
         if (jobInstance == null) {
             return false;
         }
         List<JobExecution> jobExecutions = jobExplorer.getJobExecutions(jobInstance);
-        return jobExecutions.stream().anyMatch(JobExecution::isRunning);
+        boolean running = jobExecutions.stream().anyMatch(JobExecution::isRunning);
+        jobExecutionStateCache.loaded(jobName, running);
+        return running;
     }
 
+    /**
+     * Executions stamped with another owner or an older fencing token of this owner are abandoned for sure, since
+     * this instance holds the lock now. They are stopped right away. Only executions started before the stamping
+     * existed get the grace period.
+     */
     private void checkForAbandonedJobs() {
+        Set<JobExecution> runningExecutions = jobExplorer.findRunningJobExecutions(jobName);
+        List<JobExecution> staleExecutions = runningExecutions.stream()
+                .filter(JobSyncRunnable::isStamped)
+                .filter(jobExecution -> !isStampedWithCurrentLock(jobExecution))
+                .collect(Collectors.toList());
+        if (!staleExecutions.isEmpty()) {
+            LOGGER.error("Found {} executions of {} stamped with a lock that is not held anymore. Abandoning them",
+                    staleExecutions.size(), jobName);
+            cleanUpAbandonedJobs(staleExecutions);
+        }
+        if (runningExecutions.stream().allMatch(JobSyncRunnable::isStamped)) {
+            return;
+        }
+
         long secondsWaited = 0;
         long gracePeriodInSeconds = DYNAMO_DB_LEASE_DURATION_IN_SECONDS * 2;
-        while (isLastJobExecutionStillRunning(jobName) && secondsWaited < gracePeriodInSeconds) {
+        while (!findUnstampedRunningJobExecutions().isEmpty() && secondsWaited < gracePeriodInSeconds) {
             LOGGER.error(
-                    "Some instance is still running the job even while not possessing the lock for {}. Will give grace period {} seconds",
+                    "Some instance is still running the job even while not possessing the lock for {}. "
+                            + "Will give grace period {} seconds",
                     jobName,
                     gracePeriodInSeconds);
             secondsWaited += 2;
@@ -107,16 +192,32 @@ public class JobSyncRunnable implements Runnable {
                 throw new RuntimeException(e);
             }
         }
-        if (isLastJobExecutionStillRunning(jobName)) {
+        Set<JobExecution> unstampedExecutions = findUnstampedRunningJobExecutions();
+        if (!unstampedExecutions.isEmpty()) {
             LOGGER.error("Grace period exceeded. Abandoning the current runs");
-            cleanUpAbandonedJobs();
+            cleanUpAbandonedJobs(unstampedExecutions);
         }
     }
 
-    private void cleanUpAbandonedJobs() {
-        LOGGER.debug("Cleaning up abandoned job for {}", jobName);
+    private static boolean isStamped(JobExecution jobExecution) {
+        return jobExecution.getJobParameters().getString(LOCK_OWNER) != null;
+    }
 
-        Set<JobExecution> jobExecutions = jobExplorer.findRunningJobExecutions(this.jobName);
+    private boolean isStampedWithCurrentLock(JobExecution jobExecution) {
+        JobParameters jobParameters = jobExecution.getJobParameters();
+        return jobCoordinator.getOwnerName().equals(jobParameters.getString(LOCK_OWNER))
+                && jobParameters.getString(FENCING_TOKEN, "")
+                .equals(jobCoordinator.getLeaseFence(jobName).getFencingToken());
+    }
+
+    private Set<JobExecution> findUnstampedRunningJobExecutions() {
+        return jobExplorer.findRunningJobExecutions(jobName).stream()
+                .filter(jobExecution -> !isStamped(jobExecution))
+                .collect(Collectors.toSet());
+    }
+
+    private void cleanUpAbandonedJobs(Collection<JobExecution> jobExecutions) {
+        LOGGER.debug("Cleaning up abandoned job for {}", jobName);
         LOGGER.info("Found {} running executions ", jobExecutions.size());
         for (JobExecution jobExecution : jobExecutions) {
             Collection<StepExecution> stepExecutions = jobExecution.getStepExecutions();
@@ -0,0 +1,60 @@
+package com.foo.config;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits the numeric key range of a table into gridSize contiguous ranges of about the same width. Each partition
+ * gets {@link #MIN_KEY} and {@link #MAX_KEY} (both inclusive) in its step execution context.
+ */
+public class KeyRangePartitioner implements Partitioner {
+
+    public static final String MIN_KEY = "minKey";
+    public static final String MAX_KEY = "maxKey";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String keyColumn;
+
+    public KeyRangePartitioner(JdbcTemplate jdbcTemplate, String table, String keyColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.keyColumn = keyColumn;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        // read by position. postgres folds unquoted aliases to lower case.
+        long[] bounds = jdbcTemplate.queryForObject(
+                "SELECT MIN(" + keyColumn + "), MAX(" + keyColumn + ") FROM " + table,
+                (resultSet, rowNum) -> resultSet.getObject(1) == null ? null
+                        : new long[]{resultSet.getLong(1), resultSet.getLong(2)});
+        if (bounds == null) {
+            // empty table : MIN and MAX are null. A single range that matches no key, so that the step still runs
+            // and completes without reading anything.
+            partitions.put("partition0", range(0, -1));
+            return partitions;
+        }
+        long min = bounds[0];
+        long max = bounds[1];
+        long width = Math.max(1, (max - min) / gridSize + 1);
+
+        int number = 0;
+        for (long start = min; start <= max; start += width) {
+            partitions.put("partition" + number++, range(start, Math.min(max, start + width - 1)));
+        }
+        return partitions;
+    }
+
+    private static ExecutionContext range(long minKey, long maxKey) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(MIN_KEY, minKey);
+        context.putLong(MAX_KEY, maxKey);
+        return context;
+    }
+}
@@ -0,0 +1,56 @@
+package com.foo.config;
+
+/**
+ * Validity of the lease on a job's lock as seen by this instance. The deadline is a {@link System#nanoTime()} value
+ * pushed forward by the heart beat thread of {@link AbstractJobCoordinator} every time a heart beat succeeds, so the
+ * hot paths (i.e. every chunk) can check the lease without any I/O, allocation or logging.
+ */
+public final class LeaseFence {
+
+    static final LeaseFence REVOKED = new LeaseFence(null, System.nanoTime());
+
+    // record version number of the lock when it was acquired. Changes only when the lock is acquired again.
+    private final String fencingToken;
+    private volatile long deadlineNanos;
+    // not atomic on purpose. Skipping or repeating a check once in a while under concurrent chunks is fine.
+    private int chunksSinceCheck;
+
+    LeaseFence(String fencingToken, long deadlineNanos) {
+        this.fencingToken = fencingToken;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public String getFencingToken() {
+        return fencingToken;
+    }
+
+    public boolean isValid() {
+        return System.nanoTime() - deadlineNanos < 0;
+    }
+
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * @return true once every {@code interval} calls
+     */
+    public boolean shouldCheck(int interval) {
+        if (interval <= 1) {
+            return true;
+        }
+        if (++chunksSinceCheck >= interval) {
+            chunksSinceCheck = 0;
+            return true;
+        }
+        return false;
+    }
+
+    void extend(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    void revoke() {
+        this.deadlineNanos = System.nanoTime();
+    }
+}
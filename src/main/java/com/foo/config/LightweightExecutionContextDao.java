@@ -0,0 +1,110 @@
+package com.foo.config;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.dao.ExecutionContextDao;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Does not write empty execution contexts of the ephemeral jobs. The context row is inserted by the first save or
+ * update that has something in it. Reading a context that was never written gives an empty one, as before.
+ */
+public class LightweightExecutionContextDao implements ExecutionContextDao {
+
+    private final ExecutionContextDao delegate;
+    private final Set<String> ephemeralJobs;
+
+    // executions whose context row is not written yet
+    private final Set<Long> unsavedJobContexts = ConcurrentHashMap.newKeySet();
+    private final Set<Long> unsavedStepContexts = ConcurrentHashMap.newKeySet();
+
+    public LightweightExecutionContextDao(ExecutionContextDao delegate, Set<String> ephemeralJobs) {
+        this.delegate = delegate;
+        this.ephemeralJobs = ephemeralJobs;
+    }
+
+    private boolean isEphemeral(JobExecution jobExecution) {
+        return ephemeralJobs.contains(jobExecution.getJobInstance().getJobName());
+    }
+
+    @Override
+    public ExecutionContext getExecutionContext(JobExecution jobExecution) {
+        return delegate.getExecutionContext(jobExecution);
+    }
+
+    @Override
+    public ExecutionContext getExecutionContext(StepExecution stepExecution) {
+        return delegate.getExecutionContext(stepExecution);
+    }
+
+    @Override
+    public void saveExecutionContext(JobExecution jobExecution) {
+        if (isEphemeral(jobExecution) && jobExecution.getExecutionContext().isEmpty()) {
+            unsavedJobContexts.add(jobExecution.getId());
+            return;
+        }
+        delegate.saveExecutionContext(jobExecution);
+    }
+
+    @Override
+    public void saveExecutionContext(StepExecution stepExecution) {
+        if (isEphemeral(stepExecution.getJobExecution()) && stepExecution.getExecutionContext().isEmpty()) {
+            unsavedStepContexts.add(stepExecution.getId());
+            return;
+        }
+        delegate.saveExecutionContext(stepExecution);
+    }
+
+    @Override
+    public void saveExecutionContexts(Collection<StepExecution> stepExecutions) {
+        List<StepExecution> toSave = stepExecutions.stream()
+                .filter(stepExecution -> !isEphemeral(stepExecution.getJobExecution())
+                        || !stepExecution.getExecutionContext().isEmpty())
+                .collect(Collectors.toList());
+        for (StepExecution stepExecution : stepExecutions) {
+            if (!toSave.contains(stepExecution)) {
+                unsavedStepContexts.add(stepExecution.getId());
+            }
+        }
+        if (!toSave.isEmpty()) {
+            delegate.saveExecutionContexts(toSave);
+        }
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        if (!unsavedJobContexts.contains(jobExecution.getId())) {
+            delegate.updateExecutionContext(jobExecution);
+        } else if (!jobExecution.getExecutionContext().isEmpty()) {
+            // there is no row to update yet
+            delegate.saveExecutionContext(jobExecution);
+            unsavedJobContexts.remove(jobExecution.getId());
+        }
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        if (!unsavedStepContexts.contains(stepExecution.getId())) {
+            delegate.updateExecutionContext(stepExecution);
+        } else if (!stepExecution.getExecutionContext().isEmpty()) {
+            delegate.saveExecutionContext(stepExecution);
+            unsavedStepContexts.remove(stepExecution.getId());
+        }
+    }
+
+    /**
+     * Drops what is tracked for a job execution that ended. Its contexts are not written anymore.
+     */
+    public void forget(JobExecution jobExecution) {
+        unsavedJobContexts.remove(jobExecution.getId());
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            unsavedStepContexts.remove(stepExecution.getId());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.foo.config;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Job repository for {@code repository.mode=lightweight}. For the ephemeral jobs ({@code repository.ephemeral-jobs}),
+ * the step execution and its context are written when the step starts and when it ends, not on every chunk. With
+ * {@link LightweightExecutionContextDao}, empty contexts are not written at all.
+ * <p>
+ * The price is that a failed run of an ephemeral job cannot be restarted from its last chunk, and a stop request is
+ * seen only when the step ends. Only jobs that start a new instance every run and keep no state worth restarting
+ * from should be ephemeral. All the other jobs go straight to the delegate.
+ */
+public class LightweightJobRepository implements JobRepository {
+
+    private final JobRepository delegate;
+    private final LightweightExecutionContextDao executionContextDao;
+    private final Set<String> ephemeralJobs;
+
+    public LightweightJobRepository(JobRepository delegate, LightweightExecutionContextDao executionContextDao,
+                                    Set<String> ephemeralJobs) {
+        this.delegate = delegate;
+        this.executionContextDao = executionContextDao;
+        this.ephemeralJobs = ephemeralJobs;
+    }
+
+    // updates of a running step of an ephemeral job are folded into the one at its end
+    private boolean isCoalesced(StepExecution stepExecution) {
+        return stepExecution.getStatus() == BatchStatus.STARTED
+                && ephemeralJobs.contains(stepExecution.getJobExecution().getJobInstance().getJobName());
+    }
+
+    @Override
+    public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+        return delegate.isJobInstanceExists(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.createJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public JobExecution createJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+                                           String jobConfigurationLocation) {
+        return delegate.createJobExecution(jobInstance, jobParameters, jobConfigurationLocation);
+    }
+
+    @Override
+    public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+            throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+        return delegate.createJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void update(JobExecution jobExecution) {
+        delegate.update(jobExecution);
+        if (jobExecution.getEndTime() != null) {
+            executionContextDao.forget(jobExecution);
+        }
+    }
+
+    @Override
+    public void add(StepExecution stepExecution) {
+        delegate.add(stepExecution);
+    }
+
+    @Override
+    public void addAll(Collection<StepExecution> stepExecutions) {
+        delegate.addAll(stepExecutions);
+    }
+
+    @Override
+    public void update(StepExecution stepExecution) {
+        if (!isCoalesced(stepExecution)) {
+            delegate.update(stepExecution);
+        }
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        if (!isCoalesced(stepExecution)) {
+            delegate.updateExecutionContext(stepExecution);
+        }
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        delegate.updateExecutionContext(jobExecution);
+    }
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        return delegate.getLastStepExecution(jobInstance, stepName);
+    }
+
+    @Override
+    public int getStepExecutionCount(JobInstance jobInstance, String stepName) {
+        return delegate.getStepExecutionCount(jobInstance, stepName);
+    }
+
+    @Override
+    public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+        return delegate.getLastJobExecution(jobName, jobParameters);
+    }
+}
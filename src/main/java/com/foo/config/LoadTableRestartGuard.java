@@ -0,0 +1,51 @@
+package com.foo.config;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Fails the restart of a job whose unlogged load table lost the rows of the partitions that already completed.
+ * Postgres empties unlogged tables after a crash, and a restart skips the completed partitions, so their rows would
+ * never reach the staging table. The next instance of the job, started by the next tick, syncs everything again.
+ */
+public class LoadTableRestartGuard extends JobExecutionListenerSupport {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobExplorer jobExplorer;
+    private final String loadTable;
+    private final String partitionStepName;
+
+    public LoadTableRestartGuard(JdbcTemplate jdbcTemplate, JobExplorer jobExplorer, String loadTable,
+                                 String partitionStepName) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobExplorer = jobExplorer;
+        this.loadTable = loadTable;
+        this.partitionStepName = partitionStepName;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        // rows of the completed partitions of the earlier executions of this instance, not merged yet
+        long loadedRows = jobExplorer.getJobExecutions(jobExecution.getJobInstance()).stream()
+                .filter(previous -> !previous.getId().equals(jobExecution.getId()))
+                .flatMap(previous -> previous.getStepExecutions().stream())
+                .filter(stepExecution -> stepExecution.getStepName().startsWith(partitionStepName))
+                .filter(stepExecution -> stepExecution.getStatus() == BatchStatus.COMPLETED)
+                .mapToLong(StepExecution::getWriteCount)
+                .sum();
+        if (loadedRows == 0) {
+            return;
+        }
+        Boolean loadTableHasRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + loadTable + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(loadTableHasRows)) {
+            throw new IllegalStateException(loadTable + " lost the " + loadedRows + " rows of the completed "
+                    + "partitions, i.e. after a crash of postgres. Cannot restart "
+                    + jobExecution.getJobInstance().getJobName() + ". Start a new instance instead");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.foo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically
+ * <ul>
+ *     <li>advertises the load of this instance through the lock table</li>
+ *     <li>picks up jobs that are not owned by any live instance if there are tokens free for them. i.e. after a scale
+ *     out or when an instance crashed</li>
+ *     <li>gives away one job, at a safe point between runs, if this instance is overloaded compared to an instance
+ *     that has a token free for it</li>
+ * </ul>
+ * With this, locks are no longer acquired only at start-up and the maxSurge=0 restriction on rolling updates goes away.
+ * <p>
+ * While a peer is {@link PodLoad#isDraining() draining}, rebalancing runs every
+ * {@code rebalancer.drain-interval-seconds} so that the jobs it releases are picked up right away instead of at the
+ * next regular round.
+ */
+@Component
+public class LockRebalancer implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockRebalancer.class);
+    private static final int RECENT_RUNS = 3;
+
+    @Value("${rebalancer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rebalancer.interval-seconds:30}")
+    private long intervalSeconds;
+
+    @Value("${rebalancer.drain-interval-seconds:2}")
+    private long drainIntervalSeconds;
+
+    @Autowired
+    private SyncScheduler syncScheduler;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private TokenBudget tokenBudget;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    private JobExecutionStateCache jobExecutionStateCache;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private JobPlacement jobPlacement;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile boolean peerDraining;
+
+    public void start() {
+        if (!enabled) {
+            LOGGER.info("Lock rebalancer is disabled");
+            return;
+        }
+        taskScheduler.schedule(this, triggerContext -> {
+            Date lastCompletion = triggerContext.lastCompletionTime();
+            long delayMillis = TimeUnit.SECONDS.toMillis(peerDraining ? drainIntervalSeconds : intervalSeconds);
+            return new Date((lastCompletion == null ? System.currentTimeMillis() : lastCompletion.getTime())
+                    + delayMillis);
+        });
+    }
+
+    @Override
+    public void run() {
+        if (syncScheduler.isDraining()) {
+            // the ShutdownDrainer releases and advertises by itself
+            return;
+        }
+        try {
+            for (String job : syncScheduler.getReleasingJobs()) {
+                syncScheduler.releaseJob(job);
+            }
+
+            PodLoad myLoad = advertise();
+
+            Map<String, String> jobToOwner = new HashMap<>();
+            Map<String, PodLoad> liveMembers = jobPlacement.readLockTable(jobToOwner);
+            peerDraining = liveMembers.values().stream().anyMatch(PodLoad::isDraining);
+
+            List<String> unownedJobs = new ArrayList<>(BatchConfiguration.jobs);
+            unownedJobs.removeIf(job -> myLoad.getJobs().contains(job)
+                    || liveMembers.containsKey(jobToOwner.get(job)));
+            if (pickUp(unownedJobs, liveMembers)) {
+                return;
+            }
+            giveAway(myLoad, liveMembers);
+        } catch (Throwable e) {
+            LOGGER.error("Rebalancing failed", e);
+        }
+    }
+
+    /**
+     * Publishes the current load of this instance in its member record.
+     */
+    public PodLoad advertise() throws IOException {
+        PodLoad myLoad = currentLoad();
+        jobCoordinator.advertise(objectMapper.writeValueAsBytes(myLoad));
+        return myLoad;
+    }
+
+    private PodLoad currentLoad() {
+        PodLoad podLoad = new PodLoad();
+        podLoad.setOwner(jobCoordinator.getOwnerName());
+        Set<String> heldJobs = syncScheduler.getHeldJobs();
+        podLoad.setJobs(new ArrayList<>(heldJobs));
+        podLoad.setLoad(tokenBudget.weightOf(heldJobs));
+        podLoad.setFreeSizes(tokenBudget.freeSizes());
+        Map<String, Long> recentRunMillis = new HashMap<>();
+        for (String job : heldJobs) {
+            recentRunMillis.put(job, averageRecentRunMillis(job));
+        }
+        podLoad.setRecentRunMillis(recentRunMillis);
+        podLoad.setPublishedAt(System.currentTimeMillis());
+        podLoad.setDraining(syncScheduler.isDraining());
+        return podLoad;
+    }
+
+    private long averageRecentRunMillis(String job) {
+        long cachedMillis = jobExecutionStateCache.getAverageRunMillis(job);
+        if (cachedMillis >= 0) {
+            return cachedMillis;
+        }
+        long totalMillis = 0;
+        int runs = 0;
+        for (JobInstance jobInstance : jobExplorer.findJobInstancesByJobName(job, 0, RECENT_RUNS)) {
+            for (JobExecution jobExecution : jobExplorer.getJobExecutions(jobInstance)) {
+                if (jobExecution.getStartTime() != null && jobExecution.getEndTime() != null) {
+                    totalMillis += jobExecution.getEndTime().getTime() - jobExecution.getStartTime().getTime();
+                    runs++;
+                }
+            }
+        }
+        return runs == 0 ? 0 : totalMillis / runs;
+    }
+
+    private boolean pickUp(List<String> unownedJobs, Map<String, PodLoad> liveMembers) {
+        boolean pickedUp = false;
+        if (jobPlacement.isRendezvous()) {
+            unownedJobs = jobPlacement.order(unownedJobs, jobPlacement.placementMembers(liveMembers));
+        }
+        for (String job : unownedJobs) {
+            if (tokenBudget.hasCapacityFor(job)) {
+                LOGGER.info("{} is not owned by any live instance. Trying to pick it up", job);
+                pickedUp |= syncScheduler.acquireJob(job);
+            }
+        }
+        return pickedUp;
+    }
+
+    private void giveAway(PodLoad myLoad, Map<String, PodLoad> liveMembers) {
+        Set<String> candidates = new HashSet<>(syncScheduler.getScheduledJobs());
+        Collection<String> members = jobPlacement.placementMembers(liveMembers);
+        for (PodLoad peer : liveMembers.values()) {
+            if (peer.getOwner().equals(myLoad.getOwner()) || peer.isDraining()) {
+                continue;
+            }
+            int loadDifference = myLoad.getLoad() - peer.getLoad();
+            // with rendezvous placement, the jobs the peer is the preferred owner of go first. So a scale out moves
+            // only the jobs the new instance wins.
+            Comparator<String> preference = Comparator.comparing(job -> jobPlacement.isRendezvous()
+                    && peer.getOwner().equals(JobPlacement.preferredOwner(job, members)));
+            // moving a job of weight w helps only if the difference is more than w. Else we just swap the imbalance.
+            Optional<String> jobToRelease = candidates.stream()
+                    .filter(job -> peer.getFreeSizes().contains(tokenBudget.sizeOf(job)))
+                    .filter(job -> loadDifference > tokenBudget.sizeOf(job).getWeight())
+                    .max(preference.thenComparing(job -> myLoad.getRecentRunMillis().getOrDefault(job, 0L)));
+            if (jobToRelease.isPresent()) {
+                LOGGER.info("Load {} is higher than {} of {}. Giving away {}", myLoad.getLoad(), peer.getLoad(),
+                        peer.getOwner(), jobToRelease.get());
+                // one job per round. The peer advertises its new load before we consider giving away more.
+                syncScheduler.releaseJob(jobToRelease.get());
+                return;
+            }
+        }
+    }
+}
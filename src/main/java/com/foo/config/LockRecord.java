@@ -0,0 +1,45 @@
+package com.foo.config;
+
+/**
+ * A lock as read from the lock backend.
+ */
+public class LockRecord {
+
+    private final String name;
+    private final String owner;
+    // changes with every heart beat of the owner
+    private final String recordVersion;
+    private final long leaseDurationMillis;
+    private final byte[] data;
+
+    public LockRecord(String name, String owner, String recordVersion, long leaseDurationMillis, byte[] data) {
+        this.name = name;
+        this.owner = owner;
+        this.recordVersion = recordVersion;
+        this.leaseDurationMillis = leaseDurationMillis;
+        this.data = data;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getRecordVersion() {
+        return recordVersion;
+    }
+
+    public long getLeaseDurationMillis() {
+        return leaseDurationMillis;
+    }
+
+    /**
+     * @return data of the lock. null if none
+     */
+    public byte[] getData() {
+        return data;
+    }
+}
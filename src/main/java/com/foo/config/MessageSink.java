@@ -0,0 +1,17 @@
+package com.foo.config;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where publisher-job publishes to. Picked with {@code publisher.sink} : file (default) or in-memory.
+ */
+public interface MessageSink {
+
+    /**
+     * Sends a batch of messages without waiting for them to be delivered.
+     *
+     * @return completes once the sink acknowledged every message of the batch, or exceptionally if it did not
+     */
+    CompletableFuture<Void> send(List<String> messages);
+}
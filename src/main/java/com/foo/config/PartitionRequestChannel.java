@@ -0,0 +1,72 @@
+package com.foo.config;
+
+import org.springframework.batch.integration.partition.StepExecutionRequest;
+import org.springframework.integration.channel.AbstractPollableChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of the {@link StepExecutionRequest}s of one job, kept in the PARTITION_REQUEST table of the postgres that
+ * already holds the job repository, so that the partitions reach the other instances without a message broker.
+ * <p>
+ * A request is delivered to a single receiver - it is deleted with {@code FOR UPDATE SKIP LOCKED}, so receivers on
+ * different instances never block each other nor get the same request.
+ */
+public class PartitionRequestChannel extends AbstractPollableChannel {
+
+    private static final String INSERT_REQUEST = "INSERT INTO PARTITION_REQUEST (CHANNEL, STEP_NAME, " +
+            "JOB_EXECUTION_ID, STEP_EXECUTION_ID) VALUES (?, ?, ?, ?)";
+    private static final String CLAIM_REQUEST = "DELETE FROM PARTITION_REQUEST WHERE ID = (" +
+            "SELECT ID FROM PARTITION_REQUEST WHERE CHANNEL = ? ORDER BY ID LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING STEP_NAME, JOB_EXECUTION_ID, STEP_EXECUTION_ID";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String jobName;
+    private final long pollIntervalMillis;
+
+    public PartitionRequestChannel(JdbcTemplate jdbcTemplate, String jobName, long pollIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobName = jobName;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    @Override
+    protected boolean doSend(Message<?> message, long timeout) {
+        StepExecutionRequest request = (StepExecutionRequest) message.getPayload();
+        return jdbcTemplate.update(INSERT_REQUEST, jobName, request.getStepName(), request.getJobExecutionId(),
+                request.getStepExecutionId()) == 1;
+    }
+
+    /**
+     * @param timeout 0 to return right away, negative to wait till a request shows up
+     */
+    @Override
+    protected Message<?> doReceive(long timeout) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            StepExecutionRequest request = jdbcTemplate.query(CLAIM_REQUEST,
+                    resultSet -> resultSet.next() ? new StepExecutionRequest(resultSet.getString("STEP_NAME"),
+                            resultSet.getLong("JOB_EXECUTION_ID"), resultSet.getLong("STEP_EXECUTION_ID")) : null,
+                    jobName);
+            if (request != null) {
+                return MessageBuilder.withPayload(request).build();
+            }
+            if (timeout >= 0 && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis) > deadlineNanos) {
+                return null;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+}
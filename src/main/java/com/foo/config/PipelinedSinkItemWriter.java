@@ -0,0 +1,59 @@
+package com.foo.config;
+
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sends a chunk to a {@link MessageSink} in batches of {@code batchSize} without waiting for one batch before
+ * sending the next, with at most {@code maxInFlight} batches unacknowledged at a time. Returns only once every batch
+ * of the chunk is acknowledged, so the chunk commits only what the sink has. A batch that fails fails the chunk,
+ * which is then rolled back and retried or restarted as a whole - the sink may see those messages twice.
+ */
+public class PipelinedSinkItemWriter<T> implements ItemWriter<T> {
+
+    private final MessageSink messageSink;
+    private final Function<T, String> messageMapper;
+    private final int batchSize;
+    private final Semaphore inFlight;
+    private final long ackTimeoutMillis;
+
+    public PipelinedSinkItemWriter(MessageSink messageSink, Function<T, String> messageMapper, int batchSize,
+                                   int maxInFlight, long ackTimeoutMillis) {
+        this.messageSink = messageSink;
+        this.messageMapper = messageMapper;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.ackTimeoutMillis = ackTimeoutMillis;
+    }
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        List<CompletableFuture<Void>> acknowledgements = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchSize) {
+            List<String> batch = new ArrayList<>(batchSize);
+            for (T item : items.subList(from, Math.min(items.size(), from + batchSize))) {
+                batch.add(messageMapper.apply(item));
+            }
+            // batches of a failed chunk keep their permits till the sink answers, so a retry does not pile on
+            if (!inFlight.tryAcquire(ackTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Sink did not acknowledge within " + ackTimeoutMillis + " ms");
+            }
+            CompletableFuture<Void> acknowledgement;
+            try {
+                acknowledgement = messageSink.send(batch);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+            acknowledgements.add(acknowledgement.whenComplete((result, failure) -> inFlight.release()));
+        }
+        CompletableFuture.allOf(acknowledgements.toArray(new CompletableFuture<?>[0]))
+                .get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,93 @@
+package com.foo.config;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load of an instance, advertised to the other instances through the lock table.
+ */
+public class PodLoad {
+
+    private String owner;
+    private List<String> jobs = new ArrayList<>();
+    // sum of the JobSize weights of the jobs held
+    private int load;
+    private Set<JobSize> freeSizes = EnumSet.noneOf(JobSize.class);
+    // average duration of the recent runs per job held
+    private Map<String, Long> recentRunMillis = new HashMap<>();
+    private long publishedAt;
+    // shutting down. Releases its jobs as their runs finish and picks up nothing.
+    private boolean draining;
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public List<String> getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(List<String> jobs) {
+        this.jobs = jobs;
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    public void setLoad(int load) {
+        this.load = load;
+    }
+
+    public Set<JobSize> getFreeSizes() {
+        return freeSizes;
+    }
+
+    public void setFreeSizes(Set<JobSize> freeSizes) {
+        this.freeSizes = freeSizes;
+    }
+
+    public Map<String, Long> getRecentRunMillis() {
+        return recentRunMillis;
+    }
+
+    public void setRecentRunMillis(Map<String, Long> recentRunMillis) {
+        this.recentRunMillis = recentRunMillis;
+    }
+
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    public void setPublishedAt(long publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+
+    @Override
+    public String toString() {
+        return "PodLoad{" +
+                "owner='" + owner + '\'' +
+                ", jobs=" + jobs +
+                ", load=" + load +
+                ", freeSizes=" + freeSizes +
+                ", recentRunMillis=" + recentRunMillis +
+                ", draining=" + draining +
+                '}';
+    }
+}
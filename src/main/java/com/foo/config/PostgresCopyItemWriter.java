@@ -0,0 +1,113 @@
+package com.foo.config;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Writes a chunk with a single {@code COPY ... FROM STDIN} (CSV) on the connection of the chunk's transaction,
+ * instead of one INSERT per item. Rows are streamed to the server in buffers of about {@link #FLUSH_BYTES}, so a
+ * chunk is never held in memory as CSV as a whole.
+ * <p>
+ * COPY cannot upsert - point it at an (unlogged) load table and merge that into the target afterwards, see
+ * {@link StagingMergeTasklet}.
+ */
+public class PostgresCopyItemWriter<T> implements ItemWriter<T> {
+
+    private static final int FLUSH_BYTES = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final String copySql;
+    private final FieldExtractor<T> fieldExtractor;
+
+    public PostgresCopyItemWriter(DataSource dataSource, String table, List<String> columns,
+                                  FieldExtractor<T> fieldExtractor) {
+        this.dataSource = dataSource;
+        this.copySql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        this.fieldExtractor = fieldExtractor;
+    }
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            CopyIn copyIn = copyManager.copyIn(copySql);
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_BYTES + 1024);
+                StringBuilder row = new StringBuilder(256);
+                for (T item : items) {
+                    row.setLength(0);
+                    appendRow(row, fieldExtractor.extract(item));
+                    byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+                    buffer.write(bytes, 0, bytes.length);
+                    if (buffer.size() >= FLUSH_BYTES) {
+                        copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                        buffer.reset();
+                    }
+                }
+                if (buffer.size() > 0) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                }
+                copyIn.endCopy();
+            } catch (SQLException | RuntimeException e) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                throw e;
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    static void appendRow(StringBuilder row, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            appendValue(row, values[i]);
+        }
+        row.append('\n');
+    }
+
+    // null is an unquoted empty field. Everything else is quoted, so an empty string stays an empty string
+    private static void appendValue(StringBuilder row, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text;
+        if (value instanceof Timestamp) {
+            // with the offset, so that the session time zone does not matter
+            text = ((Timestamp) value).toInstant().toString();
+        } else if (value instanceof BigDecimal) {
+            text = ((BigDecimal) value).toPlainString();
+        } else {
+            text = value.toString();
+        }
+        row.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+}
@@ -0,0 +1,150 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.foo.config.DynamoDbConfiguration.DYNAMO_DB_LEASE_DURATION_IN_SECONDS;
+
+/**
+ * Locks as rows of a lease table (JOB_LOCK) in the postgres that already holds the job repository. Leases are
+ * judged by the database clock, so an expired lease can be taken over right away without waiting for a lease
+ * duration. A lease table is used rather than advisory locks since those are held by a session, which would pin one
+ * pooled connection per job held.
+ */
+@Component
+@ConditionalOnProperty(name = "coordinator.backend", havingValue = "postgres")
+public class PostgresJobCoordinator extends AbstractJobCoordinator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresJobCoordinator.class);
+    private static final long LEASE_DURATION_MILLIS = TimeUnit.SECONDS.toMillis(DYNAMO_DB_LEASE_DURATION_IN_SECONDS);
+
+    private static final String ACQUIRE_LOCK = "INSERT INTO JOB_LOCK (LOCK_NAME, OWNER_NAME, FENCING_TOKEN, " +
+            "HEARTBEAT_COUNT, LEASE_UNTIL, LEASE_DURATION_MS, DATA) " +
+            "VALUES (?, ?, nextval('JOB_LOCK_SEQ'), 0, now() + ? * interval '1 millisecond', ?, NULL) " +
+            "ON CONFLICT (LOCK_NAME) DO UPDATE SET OWNER_NAME = EXCLUDED.OWNER_NAME, " +
+            "FENCING_TOKEN = EXCLUDED.FENCING_TOKEN, HEARTBEAT_COUNT = 0, LEASE_UNTIL = EXCLUDED.LEASE_UNTIL, " +
+            "LEASE_DURATION_MS = EXCLUDED.LEASE_DURATION_MS, DATA = EXCLUDED.DATA " +
+            "WHERE JOB_LOCK.LEASE_UNTIL < now() RETURNING FENCING_TOKEN";
+    private static final String RENEW_LOCK = "UPDATE JOB_LOCK " +
+            "SET LEASE_UNTIL = now() + ? * interval '1 millisecond', HEARTBEAT_COUNT = HEARTBEAT_COUNT + 1 " +
+            "WHERE LOCK_NAME = ? AND OWNER_NAME = ? AND FENCING_TOKEN = ?";
+    private static final String RELEASE_LOCK = "DELETE FROM JOB_LOCK " +
+            "WHERE LOCK_NAME = ? AND OWNER_NAME = ? AND FENCING_TOKEN = ?";
+    private static final String UPSERT_MEMBER = "INSERT INTO JOB_LOCK (LOCK_NAME, OWNER_NAME, FENCING_TOKEN, " +
+            "HEARTBEAT_COUNT, LEASE_UNTIL, LEASE_DURATION_MS, DATA) " +
+            "VALUES (?, ?, nextval('JOB_LOCK_SEQ'), 0, now() + ? * interval '1 millisecond', ?, ?) " +
+            "ON CONFLICT (LOCK_NAME) DO UPDATE SET HEARTBEAT_COUNT = JOB_LOCK.HEARTBEAT_COUNT + 1, " +
+            "LEASE_UNTIL = EXCLUDED.LEASE_UNTIL, DATA = EXCLUDED.DATA";
+    private static final String RENEW_MEMBER = "UPDATE JOB_LOCK " +
+            "SET LEASE_UNTIL = now() + ? * interval '1 millisecond', HEARTBEAT_COUNT = HEARTBEAT_COUNT + 1 " +
+            "WHERE LOCK_NAME = ? AND OWNER_NAME = ?";
+    private static final String READ_LOCKS = "SELECT LOCK_NAME, OWNER_NAME, FENCING_TOKEN, HEARTBEAT_COUNT, " +
+            "LEASE_DURATION_MS, DATA FROM JOB_LOCK";
+    private static final String COUNT_LIVE_LOCK = "SELECT COUNT(*) FROM JOB_LOCK " +
+            "WHERE LOCK_NAME = ? AND LEASE_UNTIL >= now()";
+    private static final String DELETE_EXPIRED_MEMBERS = "DELETE FROM JOB_LOCK " +
+            "WHERE LOCK_NAME LIKE ? AND LEASE_UNTIL < now()";
+    private static final String RELEASE_ALL = "DELETE FROM JOB_LOCK WHERE OWNER_NAME = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<String, Long> jobNameToFencingToken = new ConcurrentHashMap<>();
+
+    private volatile boolean advertised;
+
+    public PostgresJobCoordinator(@Qualifier("lockOwnerName") String ownerName) {
+        super(ownerName);
+    }
+
+    @Override
+    protected LeaseFence acquire(String jobName, boolean skipBlockingWait) {
+        long startNanos = System.nanoTime();
+        Long fencingToken = jdbcTemplate.query(ACQUIRE_LOCK,
+                resultSet -> resultSet.next() ? resultSet.getLong(1) : null,
+                jobName, getOwnerName(), LEASE_DURATION_MILLIS, LEASE_DURATION_MILLIS);
+        if (fencingToken == null) {
+            return null;
+        }
+        jobNameToFencingToken.put(jobName, fencingToken);
+        return new LeaseFence(String.valueOf(fencingToken),
+                startNanos + TimeUnit.MILLISECONDS.toNanos(LEASE_DURATION_MILLIS));
+    }
+
+    @Override
+    protected Long renew(String jobName) {
+        Long fencingToken = jobNameToFencingToken.get(jobName);
+        if (fencingToken == null) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        int updated = jdbcTemplate.update(RENEW_LOCK, LEASE_DURATION_MILLIS, jobName, getOwnerName(), fencingToken);
+        return updated == 1 ? startNanos + TimeUnit.MILLISECONDS.toNanos(LEASE_DURATION_MILLIS) : null;
+    }
+
+    @Override
+    protected void release(String jobName) {
+        Long fencingToken = jobNameToFencingToken.remove(jobName);
+        if (fencingToken == null) {
+            return;
+        }
+        int deleted = jdbcTemplate.update(RELEASE_LOCK, jobName, getOwnerName(), fencingToken);
+        if (deleted == 1) {
+            LOGGER.info("Released lock for Job :{} with fencing token {}", jobName, fencingToken);
+        } else {
+            LOGGER.error("Unable to release lock for Job : {} with fencing token {}", jobName, fencingToken);
+        }
+    }
+
+    @Override
+    protected String describe(String jobName) {
+        return "Lock's fencing token : " + jobNameToFencingToken.get(jobName);
+    }
+
+    @Override
+    public void advertise(byte[] data) {
+        jdbcTemplate.update(UPSERT_MEMBER, MEMBER_LOCK_PREFIX + getOwnerName(), getOwnerName(),
+                LEASE_DURATION_MILLIS, LEASE_DURATION_MILLIS, data);
+        advertised = true;
+    }
+
+    @Override
+    protected void renewMember() {
+        if (advertised) {
+            jdbcTemplate.update(RENEW_MEMBER, LEASE_DURATION_MILLIS, MEMBER_LOCK_PREFIX + getOwnerName(),
+                    getOwnerName());
+        }
+    }
+
+    @Override
+    public List<LockRecord> readLocks() {
+        // member rows are deleted by close() only. One of a member that died would otherwise stay for good
+        jdbcTemplate.update(DELETE_EXPIRED_MEMBERS, MEMBER_LOCK_PREFIX + "%");
+        return jdbcTemplate.query(READ_LOCKS, (resultSet, rowNum) -> new LockRecord(
+                resultSet.getString("LOCK_NAME"),
+                resultSet.getString("OWNER_NAME"),
+                resultSet.getLong("FENCING_TOKEN") + "." + resultSet.getLong("HEARTBEAT_COUNT"),
+                resultSet.getLong("LEASE_DURATION_MS"),
+                resultSet.getBytes("DATA")));
+    }
+
+    @Override
+    public boolean confirmOrphaned(LockRecord suspect) {
+        Integer liveLocks = jdbcTemplate.queryForObject(COUNT_LIVE_LOCK, Integer.class, suspect.getName());
+        return liveLocks == null || liveLocks == 0;
+    }
+
+    @Override
+    protected void close() {
+        jdbcTemplate.update(RELEASE_ALL, getOwnerName());
+    }
+}
@@ -0,0 +1,148 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Reads ahead of the step on a thread of its own into a bounded queue, so that reading the next chunk overlaps with
+ * writing the current one, while no more than {@code capacity} items are ever held in memory.
+ * <p>
+ * The delegate runs ahead of what the step committed, so its own state cannot be used for restarts. Instead, the key
+ * of the last item handed to the step is saved, and on open it is given to {@code startAfter} so that the delegate
+ * can start right after it - i.e. as the lower bound of a keyset query.
+ * <p>
+ * The delegate is closed only once the prefetching thread is out of it. If that thread is stuck in a read when the
+ * reader is closed, it closes the delegate itself when the read returns.
+ */
+public class PrefetchingItemReader<T> implements ItemStreamReader<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingItemReader.class);
+    private static final Object END = new Object();
+
+    private final ItemStreamReader<T> delegate;
+    private final Function<T, Object> keyExtractor;
+    private final Consumer<Object> startAfter;
+    private final String lastKeyName;
+    private final int capacity;
+
+    private BlockingQueue<Object> queue;
+    private Thread prefetcher;
+    private volatile Throwable failure;
+    private Object lastKey;
+    private boolean exhausted;
+    private volatile boolean closing;
+    private final AtomicBoolean delegateClosed = new AtomicBoolean();
+
+    /**
+     * @param keyExtractor key of an item, saved in the step execution context. Must be serializable by it
+     * @param startAfter   receives the saved key on open, or null when starting afresh
+     */
+    public PrefetchingItemReader(String name, ItemStreamReader<T> delegate, Function<T, Object> keyExtractor,
+                                 Consumer<Object> startAfter, int capacity) {
+        this.delegate = delegate;
+        this.keyExtractor = keyExtractor;
+        this.startAfter = startAfter;
+        this.lastKeyName = name + ".lastKey";
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        lastKey = executionContext.get(lastKeyName);
+        startAfter.accept(lastKey);
+        delegate.open(new ExecutionContext());
+        queue = new ArrayBlockingQueue<>(capacity);
+        failure = null;
+        exhausted = false;
+        closing = false;
+        delegateClosed.set(false);
+        prefetcher = new Thread(this::prefetch, "PREFETCH-" + lastKeyName);
+        prefetcher.setDaemon(true);
+        prefetcher.start();
+    }
+
+    private void prefetch() {
+        try {
+            T item;
+            while ((item = delegate.read()) != null) {
+                queue.put(item);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // closed before the end
+        } catch (Throwable e) {
+            failure = e;
+            try {
+                queue.put(END);
+            } catch (InterruptedException interrupted) {
+                // closed before the failure was read
+            }
+        } finally {
+            if (closing) {
+                closeDelegate();
+            }
+        }
+    }
+
+    private void closeDelegate() {
+        if (delegateClosed.compareAndSet(false, true)) {
+            delegate.close();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read() throws Exception {
+        if (exhausted) {
+            return null;
+        }
+        Object next = queue.take();
+        if (next == END) {
+            exhausted = true;
+            if (failure != null) {
+                throw new ItemStreamException("Prefetching failed", failure);
+            }
+            return null;
+        }
+        T item = (T) next;
+        lastKey = keyExtractor.apply(item);
+        return item;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (lastKey != null) {
+            executionContext.put(lastKeyName, lastKey);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        closing = true;
+        if (prefetcher != null) {
+            prefetcher.interrupt();
+            try {
+                prefetcher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            boolean stillReading = prefetcher.isAlive();
+            prefetcher = null;
+            if (stillReading) {
+                LOGGER.warn("{} is still reading. Its delegate is closed when the read returns", lastKeyName);
+                return;
+            }
+        }
+        closeDelegate();
+    }
+}
@@ -0,0 +1,157 @@
+package com.foo.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.foo.config.BatchConfiguration.PUBLISHER_JOB;
+
+/**
+ * Step of publisher-job. Streams the staged trades to the {@link MessageSink}:
+ * <ul>
+ *     <li>a server side cursor (fetch size rows at a time, in a transaction of its own) in (LAST_UPDATED, TRADE_ID)
+ *     order, starting after the last trade published, read ahead into a bounded queue by
+ *     {@link PrefetchingItemReader}</li>
+ *     <li>chunks sent in pipelined batches by {@link PipelinedSinkItemWriter}, acknowledged before the commit</li>
+ * </ul>
+ * The position of the last trade published moves in the chunk commit, in the {@link WatermarkStore} under
+ * publisher-job, so every run carries on from where the previous one stopped and a trade updated later is published
+ * again. This relies on trades reaching STAGED_TRADE in LAST_UPDATED order, which holds as long as the ETL stages them
+ * in windows of LAST_UPDATED (etl.sync-mode=incremental).
+ */
+@Configuration
+public class PublisherConfiguration {
+
+    @Autowired
+    private StepBuilderFactory stepBuilderFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ChunkListener chunkListener;
+
+    @Autowired
+    private MessageSink messageSink;
+
+    @Autowired
+    private WatermarkStore watermarkStore;
+
+    @Value("${publisher.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${publisher.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${publisher.prefetch:2000}")
+    private int prefetch;
+
+    @Value("${publisher.batch-size:100}")
+    private int batchSize;
+
+    @Value("${publisher.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${publisher.ack-timeout-seconds:30}")
+    private long ackTimeoutSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Bean("publisherStep")
+    public Step publisherStep() {
+        return stepBuilderFactory.get("publisher-step")
+                .<Map<String, Object>, Map<String, Object>>chunk(chunkSize)
+                .reader(publisherReader())
+                .writer(publisherWriter())
+                .listener(chunkListener)
+                .listener(publishedPositionListener())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public PrefetchingItemReader<Map<String, Object>> publisherReader() {
+        AtomicReference<WatermarkStore.Position> startAfter = new AtomicReference<>();
+        JdbcCursorItemReader<Map<String, Object>> cursor = new JdbcCursorItemReaderBuilder<Map<String, Object>>()
+                .name("publisherCursor")
+                .dataSource(dataSource)
+                .sql("SELECT TRADE_ID, BUSINESS_DATE, INSTRUMENT, QUANTITY, PRICE, LAST_UPDATED FROM STAGED_TRADE "
+                        + "WHERE (LAST_UPDATED, TRADE_ID) > (?, ?) ORDER BY LAST_UPDATED, TRADE_ID")
+                .preparedStatementSetter(preparedStatement -> {
+                    preparedStatement.setTimestamp(1, Timestamp.from(startAfter.get().getHighWaterMark()));
+                    preparedStatement.setLong(2, startAfter.get().getKey());
+                })
+                .rowMapper(new ColumnMapRowMapper())
+                .fetchSize(fetchSize)
+                .saveState(false)
+                .build();
+        // postgres streams with the fetch size only outside of auto commit. Otherwise the whole result is loaded.
+        cursor.setConnectionAutoCommit(false);
+        // the step context has the position only on a restart. A new instance starts from the store
+        return new PrefetchingItemReader<>("publisherReader", cursor, item -> position(item).toString(),
+                lastKey -> startAfter.set(lastKey == null ? publishedPosition()
+                        : WatermarkStore.Position.parse((String) lastKey)),
+                prefetch);
+    }
+
+    private WatermarkStore.Position publishedPosition() {
+        WatermarkStore.Position position = watermarkStore.getPosition(PUBLISHER_JOB);
+        return position == null ? WatermarkStore.Position.START : position;
+    }
+
+    private static WatermarkStore.Position position(Map<String, Object> item) {
+        return new WatermarkStore.Position(((Timestamp) item.get("LAST_UPDATED")).toInstant(),
+                ((Number) item.get("TRADE_ID")).longValue());
+    }
+
+    // the items of a chunk come in cursor order, so the last one is the position once the chunk commits
+    private ItemWriteListener<Map<String, Object>> publishedPositionListener() {
+        return new ItemWriteListener<Map<String, Object>>() {
+            @Override
+            public void beforeWrite(List<? extends Map<String, Object>> items) {
+            }
+
+            @Override
+            public void afterWrite(List<? extends Map<String, Object>> items) {
+                if (!items.isEmpty()) {
+                    watermarkStore.advance(PUBLISHER_JOB, position(items.get(items.size() - 1)));
+                }
+            }
+
+            @Override
+            public void onWriteError(Exception exception, List<? extends Map<String, Object>> items) {
+            }
+        };
+    }
+
+    @Bean
+    public PipelinedSinkItemWriter<Map<String, Object>> publisherWriter() {
+        return new PipelinedSinkItemWriter<>(messageSink, this::toMessage, batchSize, maxInFlight,
+                TimeUnit.SECONDS.toMillis(ackTimeoutSeconds));
+    }
+
+    private String toMessage(Map<String, Object> row) {
+        try {
+            return objectMapper.writeValueAsString(row);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize " + row, e);
+        }
+    }
+}
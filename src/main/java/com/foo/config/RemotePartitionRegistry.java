@@ -0,0 +1,33 @@
+package com.foo.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Step executions this instance is running as a worker for a job whose lock is held by some other instance (or by
+ * this one). Their updates are not fenced by the job's lock - the lock is checked by the manager step which waits
+ * for them.
+ */
+@Component
+public class RemotePartitionRegistry {
+
+    private final Set<Long> workerStepExecutionIds = ConcurrentHashMap.newKeySet();
+
+    public void started(Long stepExecutionId) {
+        workerStepExecutionIds.add(stepExecutionId);
+    }
+
+    public void finished(Long stepExecutionId) {
+        workerStepExecutionIds.remove(stepExecutionId);
+    }
+
+    public boolean isWorker(Long stepExecutionId) {
+        return stepExecutionId != null && workerStepExecutionIds.contains(stepExecutionId);
+    }
+
+    public int getActiveWorkers() {
+        return workerStepExecutionIds.size();
+    }
+}
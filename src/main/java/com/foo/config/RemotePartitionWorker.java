@@ -0,0 +1,159 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.step.StepLocator;
+import org.springframework.batch.integration.partition.StepExecutionRequest;
+import org.springframework.batch.integration.partition.StepExecutionRequestHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker side of remote partitioning ({@code etl.partition.mode=remote}). Polls the {@link PartitionRequestChannel}
+ * of every partitioned job and runs the partitions on this instance. A partition is claimed only if there is a token
+ * free for its job, unless this instance is the manager of that job, i.e. holds its lock, which already costs a
+ * token. That way idle instances help with the heavy datasets of others while busy ones are left alone.
+ */
+@Component
+public class RemotePartitionWorker implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemotePartitionWorker.class);
+
+    @Value("${etl.partition.mode:local}")
+    private String partitionMode;
+
+    @Value("${etl.remote.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${etl.remote.poll-interval-millis:1000}")
+    private long pollIntervalMillis;
+
+    @Autowired
+    private List<PartitionRequestChannel> channels;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    @Qualifier("partitionStepLocator")
+    private StepLocator partitionStepLocator;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private TokenBudget tokenBudget;
+
+    @Autowired
+    private RemotePartitionRegistry remotePartitionRegistry;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private SyncScheduler syncScheduler;
+
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private ExecutorService workerExecutor;
+    private StepExecutionRequestHandler stepExecutionRequestHandler;
+
+    public void start() {
+        if (!"remote".equals(partitionMode)) {
+            return;
+        }
+        stepExecutionRequestHandler = new StepExecutionRequestHandler();
+        stepExecutionRequestHandler.setJobExplorer(jobExplorer);
+        stepExecutionRequestHandler.setStepLocator(partitionStepLocator);
+        AtomicInteger threadCount = new AtomicInteger();
+        workerExecutor = Executors.newFixedThreadPool(workerThreads,
+                runnable -> new Thread(runnable, "PARTITION-WORKER-" + threadCount.incrementAndGet()));
+        taskScheduler.scheduleWithFixedDelay(this, Duration.ofMillis(pollIntervalMillis));
+        LOGGER.info("Remote partition worker started with {} threads", workerThreads);
+    }
+
+    @Override
+    public void run() {
+        if (syncScheduler.isDraining()) {
+            // partitions in progress are waited upon by their managers. No new ones are claimed.
+            return;
+        }
+        try {
+            for (PartitionRequestChannel channel : channels) {
+                while (activeWorkers.get() < workerThreads && claim(channel)) {
+                    LOGGER.debug("Claimed a partition of {}", channel.getJobName());
+                }
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Polling for partitions failed", e);
+        }
+    }
+
+    private boolean claim(PartitionRequestChannel channel) {
+        String jobName = channel.getJobName();
+        boolean manager = jobCoordinator.getHeldJobs().contains(jobName);
+        if (!manager && !tokenBudget.tryReserve(jobName)) {
+            return false;
+        }
+        Message<?> message = null;
+        try {
+            message = channel.receive(0);
+        } finally {
+            if (message == null && !manager) {
+                tokenBudget.release(jobName);
+            }
+        }
+        if (message == null) {
+            return false;
+        }
+        StepExecutionRequest request = (StepExecutionRequest) message.getPayload();
+        activeWorkers.incrementAndGet();
+        workerExecutor.execute(() -> {
+            try {
+                execute(request);
+            } finally {
+                activeWorkers.decrementAndGet();
+                if (!manager) {
+                    tokenBudget.release(jobName);
+                }
+            }
+        });
+        return true;
+    }
+
+    private void execute(StepExecutionRequest request) {
+        LOGGER.info("Running {} as a worker", request);
+        remotePartitionRegistry.started(request.getStepExecutionId());
+        try {
+            StepExecution stepExecution = stepExecutionRequestHandler.handle(request);
+            LOGGER.info("Partition {} finished with {}", stepExecution.getStepName(), stepExecution.getStatus());
+        } catch (RuntimeException e) {
+            LOGGER.error("Partition {} could not be run", request, e);
+        } finally {
+            remotePartitionRegistry.finished(request.getStepExecutionId());
+        }
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workerExecutor != null) {
+            workerExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.foo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Possessing the lock != running the job. The heart beat keeps the lock of a job alive even when its
+ * {@link JobSyncRunnable} hangs (i.e. in checkForAbandonedJobs), keeps failing or is never triggered again. This
+ * compares the schedule of every job held with its last tick, launch and completion, and exposes the lag as
+ * {@code batch.scheduler.lag}.
+ * <p>
+ * A job lagging more than {@code watchdog.max-lag-intervals} of its schedule is rescheduled. If it falls behind again,
+ * its lock is released so that another instance takes it over.
+ * <p>
+ * Runs on a thread of its own, since a saturated scheduler pool is one of the things it has to catch.
+ */
+@Component
+public class SchedulerWatchdog implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchedulerWatchdog.class);
+
+    @Value("${watchdog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${watchdog.interval-seconds:30}")
+    private long intervalSeconds;
+
+    @Value("${watchdog.max-lag-intervals:2}")
+    private int maxLagIntervals;
+
+    // a run taking longer than this is considered stuck. Until then, the job is not lagging while it runs.
+    @Value("${watchdog.max-run-seconds:1800}")
+    private long maxRunSeconds;
+
+    @Autowired
+    private SyncScheduler syncScheduler;
+
+    @Autowired
+    private JobScheduleFactory jobScheduleFactory;
+
+    @Autowired
+    private JobExecutionStateCache jobExecutionStateCache;
+
+    private final Map<String, Long> jobNameToLagMillis = new ConcurrentHashMap<>();
+    // jobs rescheduled once already, released if they fall behind again
+    private final Map<String, Long> jobNameToRescheduledAt = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService watchdogExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SCHEDULER-WATCHDOG");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public void start() {
+        if (!enabled) {
+            LOGGER.info("Scheduler watchdog is disabled");
+            return;
+        }
+        watchdogExecutor.scheduleWithFixedDelay(this, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void run() {
+        if (syncScheduler.isDraining()) {
+            return;
+        }
+        try {
+            jobNameToLagMillis.keySet().retainAll(syncScheduler.getScheduledJobs());
+            jobNameToRescheduledAt.keySet().retainAll(syncScheduler.getScheduledJobs());
+            for (String job : syncScheduler.getScheduledJobs()) {
+                check(job);
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Watchdog check failed", e);
+        }
+    }
+
+    private void check(String job) {
+        long expectedIntervalMillis = jobScheduleFactory.expectedIntervalMillis(job);
+        long lagMillis = lagMillis(job, expectedIntervalMillis, System.currentTimeMillis());
+        if (jobNameToLagMillis.put(job, lagMillis) == null) {
+            Gauge.builder("batch.scheduler.lag", jobNameToLagMillis, lags -> lags.getOrDefault(job, 0L) / 1000.0)
+                    .tag("job", job)
+                    .baseUnit("seconds")
+                    .description("How far the runs of a job held by this instance are behind its schedule")
+                    .register(Metrics.globalRegistry);
+        }
+        if (lagMillis <= expectedIntervalMillis * maxLagIntervals) {
+            Long rescheduledAt = jobNameToRescheduledAt.get(job);
+            if (rescheduledAt != null && jobExecutionStateCache.getLastCompletionMillis(job) > rescheduledAt) {
+                // recovered. A later stall gets a reschedule again
+                jobNameToRescheduledAt.remove(job);
+            }
+            return;
+        }
+        if (!jobNameToRescheduledAt.containsKey(job)) {
+            LOGGER.error("{} is {} ms behind its schedule. Rescheduling it", job, lagMillis);
+            if (syncScheduler.rescheduleJob(job)) {
+                jobNameToRescheduledAt.put(job, System.currentTimeMillis());
+                countAction(job, "reschedule");
+            }
+            return;
+        }
+        LOGGER.error("{} is {} ms behind its schedule even after rescheduling. Releasing it to another instance",
+                job, lagMillis);
+        jobNameToRescheduledAt.remove(job);
+        countAction(job, "release");
+        // completed by the LockRebalancer if a run is still in progress
+        syncScheduler.releaseJob(job);
+    }
+
+    /**
+     * The larger of
+     * <ul>
+     *     <li>time since the last tick completed (or the job got scheduled) beyond one interval. Catches ticks that
+     *     hang or are not triggered anymore</li>
+     *     <li>time since the last launch or completion beyond one interval, unless a run is in progress for less
+     *     than {@code watchdog.max-run-seconds}. Catches ticks that keep failing or skipping the launch</li>
+     * </ul>
+     */
+    private long lagMillis(String job, long expectedIntervalMillis, long nowMillis) {
+        long scheduledAt = syncScheduler.getScheduledAtMillis(job);
+        JobSyncRunnable jobSyncRunnable = syncScheduler.getJobSyncRunnable(job);
+        long lastTick = jobSyncRunnable == null ? 0 : jobSyncRunnable.getLastTickCompletedMillis();
+        long tickLag = nowMillis - Math.max(scheduledAt, lastTick) - expectedIntervalMillis;
+
+        long lastLaunch = jobExecutionStateCache.getLastLaunchMillis(job);
+        long launchLag;
+        if (Boolean.TRUE.equals(jobExecutionStateCache.isLastExecutionRunning(job))
+                && nowMillis - lastLaunch < TimeUnit.SECONDS.toMillis(maxRunSeconds)) {
+            launchLag = 0;
+        } else {
+            long lastProgress = Math.max(scheduledAt,
+                    Math.max(lastLaunch, jobExecutionStateCache.getLastCompletionMillis(job)));
+            launchLag = nowMillis - lastProgress - expectedIntervalMillis;
+        }
+        return Math.max(0, Math.max(tickLag, launchLag));
+    }
+
+    private static void countAction(String job, String action) {
+        Metrics.globalRegistry.counter("batch.scheduler.watchdog.actions", "job", job, "action", action).increment();
+    }
+
+    @PreDestroy
+    public void stop() {
+        watchdogExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,124 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobExecutionNotRunningException;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.launch.NoSuchJobExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the jobs of this instance over on shutdown, instead of cutting the runs off and leaving the other instances to
+ * wait for the leases to expire and the abandoned job grace period.
+ * <ol>
+ *     <li>stops launching new runs and picking up jobs</li>
+ *     <li>advertises itself as draining, so that the peers rebalance at a short interval</li>
+ *     <li>releases the lock of every job as soon as its run in progress finishes, up to
+ *     {@code shutdown.drain-timeout-seconds}</li>
+ *     <li>stops the runs still in progress after that. Chunk steps stop at the next chunk boundary with their state
+ *     committed, and their locks are released once stopped, up to {@code shutdown.stop-timeout-seconds}</li>
+ * </ol>
+ * A released lock is gone from the lock table, which is what the peers pick jobs up on. Whatever is left after both
+ * timeouts is handled by the lease expiry as before. terminationGracePeriodSeconds of the pod should cover both.
+ */
+@Component
+public class ShutdownDrainer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShutdownDrainer.class);
+
+    @Value("${shutdown.drain-timeout-seconds:60}")
+    private long drainTimeoutSeconds;
+
+    @Value("${shutdown.stop-timeout-seconds:15}")
+    private long stopTimeoutSeconds;
+
+    @Autowired
+    private SyncScheduler syncScheduler;
+
+    @Autowired
+    private LockRebalancer lockRebalancer;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    private JobOperator jobOperator;
+
+    @PreDestroy
+    public void drain() {
+        long startNanos = System.nanoTime();
+        LOGGER.info("Draining {}", syncScheduler.getHeldJobs());
+        syncScheduler.startDraining();
+        advertise();
+
+        if (!releaseAll(drainTimeoutSeconds)) {
+            for (String job : syncScheduler.getReleasingJobs()) {
+                stopRunningExecutions(job);
+            }
+            releaseAll(stopTimeoutSeconds);
+        }
+
+        Set<String> leftOver = syncScheduler.getHeldJobs();
+        if (leftOver.isEmpty()) {
+            LOGGER.info("Drained in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } else {
+            LOGGER.error("{} are still running after the drain timeout. Their locks are left to expire", leftOver);
+        }
+    }
+
+    /**
+     * @return true if every job got released before the timeout
+     */
+    private boolean releaseAll(long timeoutSeconds) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (true) {
+            boolean released = false;
+            for (String job : syncScheduler.getReleasingJobs()) {
+                released |= syncScheduler.releaseJob(job);
+            }
+            if (released) {
+                advertise();
+            }
+            if (syncScheduler.getReleasingJobs().isEmpty()) {
+                return true;
+            }
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                return false;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private void stopRunningExecutions(String job) {
+        for (JobExecution jobExecution : jobExplorer.findRunningJobExecutions(job)) {
+            LOGGER.warn("Stopping {} of {} for shutdown", jobExecution.getId(), job);
+            try {
+                jobOperator.stop(jobExecution.getId());
+            } catch (NoSuchJobExecutionException | JobExecutionNotRunningException e) {
+                LOGGER.info("{} of {} is already done", jobExecution.getId(), job);
+            }
+        }
+    }
+
+    private void advertise() {
+        try {
+            lockRebalancer.advertise();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to advertise the drain", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.foo.config;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how late every tick of the delegate started compared to when it was scheduled, as
+ * {@code batch.scheduler.tick.skew}. A growing skew means the scheduler pool is saturated.
+ */
+public class SkewRecordingTrigger implements Trigger {
+
+    private final Trigger delegate;
+    private final Timer skew;
+
+    public SkewRecordingTrigger(String jobName, Trigger delegate) {
+        this.delegate = delegate;
+        this.skew = Timer.builder("batch.scheduler.tick.skew")
+                .tag("job", jobName)
+                .description("Delay between the scheduled and the actual start of a tick")
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public Date nextExecutionTime(TriggerContext triggerContext) {
+        Date scheduled = triggerContext.lastScheduledExecutionTime();
+        Date actual = triggerContext.lastActualExecutionTime();
+        if (scheduled != null && actual != null) {
+            skew.record(Math.max(0, actual.getTime() - scheduled.getTime()), TimeUnit.MILLISECONDS);
+        }
+        return delegate.nextExecutionTime(triggerContext);
+    }
+}
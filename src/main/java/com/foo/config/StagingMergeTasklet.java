@@ -0,0 +1,66 @@
+package com.foo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+
+import static com.foo.config.IncrementalWindowListener.WATERMARK_TO;
+import static com.foo.config.JobCompletionEvents.CHANGED_ROWS;
+
+/**
+ * Merges what {@link PostgresCopyItemWriter} loaded into an unlogged load table into the target table and empties
+ * the load table, in one transaction. Only one execution of a job runs at a time (the lock), so the load table of a
+ * job is not shared with anybody else.
+ * <p>
+ * The number of rows the merge changed is kept in the job execution context for {@link JobCompletionEvents}.
+ * <p>
+ * In incremental mode, the high-water mark of the job moves to the end of the run's window in the same transaction.
+ * See {@link IncrementalWindowListener}.
+ */
+public class StagingMergeTasklet implements Tasklet {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StagingMergeTasklet.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String mergeSql;
+    private final String loadTable;
+    private final WatermarkStore watermarkStore;
+
+    /**
+     * @param mergeSql null when nothing is loaded into the load table (etl.staging.writer=insert)
+     */
+    public StagingMergeTasklet(JdbcTemplate jdbcTemplate, String mergeSql, String loadTable) {
+        this(jdbcTemplate, mergeSql, loadTable, null);
+    }
+
+    public StagingMergeTasklet(JdbcTemplate jdbcTemplate, String mergeSql, String loadTable,
+                               WatermarkStore watermarkStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mergeSql = mergeSql;
+        this.loadTable = loadTable;
+        this.watermarkStore = watermarkStore;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        if (mergeSql != null) {
+            int merged = jdbcTemplate.update(mergeSql);
+            jdbcTemplate.execute("TRUNCATE " + loadTable);
+            contribution.incrementWriteCount(merged);
+            chunkContext.getStepContext().getStepExecution().getJobExecution().getExecutionContext()
+                    .putLong(CHANGED_ROWS, merged);
+            LOGGER.info("Merged {} rows from {}", merged, loadTable);
+        }
+        Object watermarkTo = chunkContext.getStepContext().getJobExecutionContext().get(WATERMARK_TO);
+        if (watermarkStore != null && watermarkTo != null) {
+            watermarkStore.advance(chunkContext.getStepContext().getJobName(), Instant.parse((String) watermarkTo));
+        }
+        return RepeatStatus.FINISHED;
+    }
+}
@@ -2,24 +2,44 @@ package com.foo.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 public class SyncScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SyncScheduler.class);
 
-    @Value("${tokens}")
-    private Integer tokens;
+    @Autowired
+    private TokenBudget tokenBudget;
 
     @Autowired
     private BatchConfiguration batchConfiguration;
@@ -28,57 +48,339 @@ public class SyncScheduler {
     private TaskScheduler taskScheduler;
 
     @Autowired
-    private DynamoDBJobCoordinator dynamoDBJobCoordinator;
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    private JobLaunchExecutor jobLaunchExecutor;
+
+    @Autowired
+    private JobScheduleFactory jobScheduleFactory;
+
+    @Autowired
+    private JobPlacement jobPlacement;
+
+    @Value("${lock.acquisition.parallelism:4}")
+    private int parallelism;
+
+    @Value("${lock.acquisition.shuffle:true}")
+    private boolean shuffleJobs;
 
     @Autowired
     @Qualifier("jobSyncRunnableBeanFactory")
     private Function<String, JobSyncRunnable> jobSyncRunnableBeanFactory;
 
+    private final Map<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<>();
+    private final Map<String, JobSyncRunnable> jobSyncRunnables = new ConcurrentHashMap<>();
+    private final Map<String, Long> scheduledAtMillis = new ConcurrentHashMap<>();
+    // jobs whose schedule is cancelled but the lock is still held since the last run is not done yet
+    private final Set<String> releasingJobs = ConcurrentHashMap.newKeySet();
+
+    private volatile long acquisitionMillis;
+    private volatile boolean draining;
+
     public void initialize() {
-        List<String> allJobs = new ArrayList<>(BatchConfiguration.jobs);
-        List<String> acquiredLocks = acquireLocks(allJobs);
+        long startNanos = System.nanoTime();
+        List<String> allJobs;
+        List<String> firstTryJobs;
+        if (jobPlacement.isRendezvous()) {
+            Collection<String> members = joinMembers();
+            allJobs = jobPlacement.order(BatchConfiguration.jobs, members);
+            // the others go for their own preferred jobs first, so racing them for those would mostly fail
+            firstTryJobs = allJobs.stream()
+                    .filter(job -> jobPlacement.isPreferred(job, members))
+                    .collect(Collectors.toList());
+        } else {
+            allJobs = orderForThisInstance(BatchConfiguration.jobs);
+            firstTryJobs = allJobs;
+        }
+        // first try only takes the locks that are free. Locks held by others are not waited upon for a lease duration.
+        List<String> acquiredLocks = acquireLocks(firstTryJobs, true);
         int count = 1;
-        LOGGER.info("With {} try, acquired {} locks for {} ", count, acquiredLocks.size(), acquiredLocks);
+        LOGGER.info("With {} try, acquired {} locks for {} in {} ms", count, acquiredLocks.size(), acquiredLocks,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
 
-        // We need to have rolling updates, else this whole concept of acquiring locks at start-up will never work. That too, maxSurge should be always set to 0
-        if(acquiredLocks.size() != tokens) {
-            while (acquiredLocks.size() < tokens && count < 3) {
-                allJobs.removeAll(acquiredLocks);
-                if(allJobs.isEmpty()) {
-                    break;
-                }
-                LOGGER.info("{} tokens free. Trying to acquire more. Try : {}", tokens - acquiredLocks.size(), count);
-                List<String> acquiredLocksThisTry = acquireLocks(allJobs);
-                tokens+= acquiredLocksThisTry.size();
-                acquiredLocks.addAll(acquiredLocksThisTry);
-                LOGGER.info("With {} try, acquired {} more locks for {}. Total : {}", count,
-                        acquiredLocksThisTry.size(), acquiredLocksThisTry, acquiredLocks);
-                count++;
-            }
+        // Without the LockRebalancer, we need to have rolling updates, else this whole concept of acquiring locks at
+        // start-up will never work. That too, maxSurge should be always set to 0
+        allJobs.removeAll(acquiredLocks);
+        if (jobPlacement.isRendezvous()) {
+            removeOwnedByLiveMembers(allJobs);
+        }
+        while (tokenBudget.hasCapacityForAny(allJobs) && count < 3) {
+            LOGGER.info("Tokens free ({}). Trying to acquire more. Try : {}", tokenBudget, count);
+            List<String> acquiredLocksThisTry = acquireLocks(allJobs, false);
+            allJobs.removeAll(acquiredLocksThisTry);
+            acquiredLocks.addAll(acquiredLocksThisTry);
+            LOGGER.info("With {} try, acquired {} more locks for {}. Total : {}", count,
+                    acquiredLocksThisTry.size(), acquiredLocksThisTry, acquiredLocks);
+            count++;
         }
+        acquisitionMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
 
-        // At this point, we would have more free tokens but that's okay.
+        // At this point, we would have more free tokens but that's okay. LockRebalancer picks up jobs later.
+        LOGGER.info("Running {} with {}. Start-up lock acquisition took {} ms", acquiredLocks, tokenBudget,
+                acquisitionMillis);
         for(String job : acquiredLocks) {
-            taskScheduler.scheduleWithFixedDelay(jobSyncRunnableBeanFactory.apply(job),
-                    // the schedule can be configured per job too
-                    Duration.ofSeconds(30L));
+            if (!scheduleUnlessDraining(job)) {
+                giveBack(job);
+            }
         }
     }
 
-    private List<String> acquireLocks(List<String> jobsToAcquireLockFor){
+    // for a lock that is taken but never scheduled, so no run of this instance can be in progress
+    private void giveBack(String job) {
+        jobCoordinator.unregisterJob(job);
+        tokenBudget.release(job);
+        LOGGER.info("Draining started. Gave back {}. {}", job, tokenBudget);
+    }
+
+    // a job held by a live member is not waited upon. The LockRebalancer moves it here if this instance is less loaded.
+    private void removeOwnedByLiveMembers(List<String> jobs) {
+        Map<String, String> jobToOwner = new HashMap<>();
+        Map<String, PodLoad> liveMembers = jobPlacement.readLockTable(jobToOwner);
+        jobs.removeIf(job -> liveMembers.containsKey(jobToOwner.get(job)));
+    }
+
+    private Collection<String> joinMembers() {
+        try {
+            return jobPlacement.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while joining the members", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not advertise the member record", e);
+        }
+    }
+
+    /**
+     * Every instance iterating the jobs in the same order makes all of them race for the same locks first.
+     * Shuffling with a seed derived from the owner name spreads the instances across the lock rows.
+     */
+    private List<String> orderForThisInstance(List<String> jobs) {
+        List<String> orderedJobs = new ArrayList<>(jobs);
+        if (shuffleJobs) {
+            Collections.shuffle(orderedJobs, new Random(jobCoordinator.getOwnerName().hashCode()));
+        }
+        return orderedJobs;
+    }
+
+    /**
+     * Tries to acquire the locks with up to {@code lock.acquisition.parallelism} calls in flight. A token is reserved
+     * before a call is made and given back if the lock is not granted, so the token budget is never exceeded.
+     */
+    private List<String> acquireLocks(List<String> jobsToAcquireLockFor, boolean skipBlockingWait) {
         List<String> locksAcquired = new ArrayList<>();
-        int usedTokens = 0;
-        for (String job : jobsToAcquireLockFor) {
-            if(usedTokens == tokens) {
-                break;
-            }
-            boolean isLockAcquired = dynamoDBJobCoordinator.registerJob(job);
-            if(isLockAcquired) {
-                locksAcquired.add(job);
-                usedTokens++;
+        List<String> pendingJobs = new ArrayList<>(jobsToAcquireLockFor);
+        ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(parallelism, pendingJobs.size())));
+        CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executorService);
+        Map<Future<Boolean>, String> inFlight = new HashMap<>();
+        try {
+            while (true) {
+                Iterator<String> iterator = pendingJobs.iterator();
+                while (iterator.hasNext() && inFlight.size() < parallelism) {
+                    String job = iterator.next();
+                    // in size mode, a full L class does not stop us from picking up S and M jobs
+                    if (tokenBudget.tryReserve(job)) {
+                        iterator.remove();
+                        inFlight.put(completionService.submit(
+                                () -> jobCoordinator.registerJob(job, skipBlockingWait)), job);
+                    }
+                }
+                if (inFlight.isEmpty()) {
+                    // nothing is pending that fits in the free tokens
+                    break;
+                }
+                Future<Boolean> done = completionService.take();
+                String job = inFlight.remove(done);
+                if (isAcquired(done, job)) {
+                    locksAcquired.add(job);
+                } else {
+                    // giving the token back might let one of the pending jobs through
+                    tokenBudget.release(job);
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while acquiring locks", e);
+        } finally {
+            executorService.shutdown();
         }
         return locksAcquired;
     }
 
+    private boolean isAcquired(Future<Boolean> done, String job) throws InterruptedException {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            LOGGER.error("Error while trying to acquire lock for {}", job, e.getCause());
+            return false;
+        }
+    }
+
+    public long getAcquisitionMillis() {
+        return acquisitionMillis;
+    }
+
+    private void schedule(String job) {
+        JobSyncRunnable jobSyncRunnable = jobSyncRunnableBeanFactory.apply(job);
+        jobSyncRunnables.put(job, jobSyncRunnable);
+        scheduledAtMillis.put(job, System.currentTimeMillis());
+        scheduledJobs.put(job, taskScheduler.schedule(jobSyncRunnable, jobScheduleFactory.triggerFor(job)));
+        LOGGER.info("Scheduled {} with {}", job, jobScheduleFactory.describe(job));
+        jobLaunchExecutor.resize(getHeldJobs().size());
+    }
+
+    /**
+     * Schedules the job unless draining started. Synchronized with {@link #startDraining()} so that a job is either
+     * scheduled before the draining releases the scheduled jobs or not at all.
+     *
+     * @return false if draining
+     */
+    private synchronized boolean scheduleUnlessDraining(String job) {
+        if (draining) {
+            return false;
+        }
+        schedule(job);
+        return true;
+    }
+
+    /**
+     * @return jobs this instance holds the lock for, including the ones being released
+     */
+    public Set<String> getHeldJobs() {
+        Set<String> heldJobs = new HashSet<>(scheduledJobs.keySet());
+        heldJobs.addAll(releasingJobs);
+        return heldJobs;
+    }
+
+    public Set<String> getScheduledJobs() {
+        return new HashSet<>(scheduledJobs.keySet());
+    }
+
+    public Set<String> getReleasingJobs() {
+        return new HashSet<>(releasingJobs);
+    }
+
+    public JobSyncRunnable getJobSyncRunnable(String job) {
+        return jobSyncRunnables.get(job);
+    }
+
+    /**
+     * @return when the job was last (re)scheduled. 0 if it is not scheduled
+     */
+    public long getScheduledAtMillis(String job) {
+        return scheduledAtMillis.getOrDefault(job, 0L);
+    }
+
+    /**
+     * Runs a tick of the job right away, besides its schedule. i.e. when its source data changed.
+     *
+     * @return false if the job is not scheduled by this instance
+     */
+    public boolean triggerNow(String job) {
+        JobSyncRunnable jobSyncRunnable = jobSyncRunnables.get(job);
+        if (draining || jobSyncRunnable == null) {
+            return false;
+        }
+        taskScheduler.schedule(jobSyncRunnable, new Date());
+        return true;
+    }
+
+    /**
+     * Cancels the schedule of the job, interrupting a tick that is stuck, and schedules it again with a new
+     * {@link JobSyncRunnable}. The lock and the token are kept, unless draining started in the meantime. Then the
+     * job is released instead.
+     *
+     * @return false if the job is not scheduled by this instance or is released
+     */
+    public boolean rescheduleJob(String job) {
+        // removed first so that a concurrent releaseJob does not see the job half way
+        ScheduledFuture<?> future = scheduledJobs.remove(job);
+        if (future == null) {
+            return false;
+        }
+        future.cancel(true);
+        if (!scheduleUnlessDraining(job)) {
+            // startDraining did not see the job since it was removed above
+            LOGGER.info("Draining started while rescheduling {}. Releasing it instead", job);
+            releasingJobs.add(job);
+            jobSyncRunnables.remove(job);
+            scheduledAtMillis.remove(job);
+            releaseJob(job);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Acquires the lock for the job if there is a token free for it and schedules it.
+     */
+    public boolean acquireJob(String job) {
+        if (draining || scheduledJobs.containsKey(job) || releasingJobs.contains(job) || !tokenBudget.tryReserve(job)) {
+            return false;
+        }
+        if (!jobCoordinator.registerJob(job)) {
+            tokenBudget.release(job);
+            return false;
+        }
+        // draining may have started while the lock was being taken
+        if (!scheduleUnlessDraining(job)) {
+            giveBack(job);
+            return false;
+        }
+        LOGGER.info("Picked up {}. {}", job, tokenBudget);
+        return true;
+    }
+
+    /**
+     * Stops launching new runs of every job held, for shutdown. From here on no job is picked up and the locks are
+     * released by {@link #releaseJob(String)} as the runs in progress finish.
+     */
+    public void startDraining() {
+        synchronized (this) {
+            draining = true;
+        }
+        for (String job : getScheduledJobs()) {
+            releaseJob(job);
+        }
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Stops scheduling the job and releases its lock at a safe point i.e. when there is no running execution.
+     * If the last run is not done yet, the lock is kept and the release is completed by a later call.
+     *
+     * @return true if the lock is released
+     */
+    public boolean releaseJob(String job) {
+        ScheduledFuture<?> future = scheduledJobs.remove(job);
+        if (future != null) {
+            // not interrupting. A tick that is already past canContinue can still launch an instance which we
+            // catch with the running check below on this or the next call.
+            future.cancel(false);
+            releasingJobs.add(job);
+            jobSyncRunnables.remove(job);
+            scheduledAtMillis.remove(job);
+        }
+        if (!releasingJobs.contains(job)) {
+            return false;
+        }
+        if (!jobExplorer.findRunningJobExecutions(job).isEmpty()) {
+            LOGGER.info("{} is still running. Will release the lock once it is done", job);
+            return false;
+        }
+        jobCoordinator.unregisterJob(job);
+        tokenBudget.release(job);
+        releasingJobs.remove(job);
+        jobLaunchExecutor.resize(getHeldJobs().size());
+        LOGGER.info("Released {}. {}", job, tokenBudget);
+        return true;
+    }
+
 }
@@ -0,0 +1,164 @@
+package com.foo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Tokens this instance can spend on jobs.
+ * <ul>
+ *     <li>count mode (default) : every job costs one token out of {@code tokens}</li>
+ *     <li>size mode : every job costs one token of its {@link JobSize} class out of {@code tokens.S}, {@code tokens.M}
+ *     and {@code tokens.L}. i.e. configure the instance to run 2 S, 1 M and 1 L datasets.</li>
+ * </ul>
+ * Size of a job defaults to {@link BatchConfiguration#jobSizes} and can be overridden with {@code job.size.<jobName>}.
+ */
+@Component
+public class TokenBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenBudget.class);
+
+    public enum Mode {
+        COUNT,
+        SIZE
+    }
+
+    @Value("${tokens}")
+    private Integer tokens;
+
+    @Value("${tokens.mode:count}")
+    private String mode;
+
+    @Autowired
+    private Environment environment;
+
+    private Mode tokenMode;
+    private final Map<JobSize, Integer> capacity = new EnumMap<>(JobSize.class);
+    private final Map<JobSize, Integer> used = new EnumMap<>(JobSize.class);
+    private int usedTokens;
+
+    @PostConstruct
+    public void init() {
+        tokenMode = Mode.valueOf(mode.toUpperCase());
+        for (JobSize size : JobSize.values()) {
+            capacity.put(size, environment.getProperty("tokens." + size.name(), Integer.class, 0));
+            used.put(size, 0);
+        }
+        if (tokenMode == Mode.COUNT) {
+            registerGauges("all", budget -> budget.usedTokens, budget -> budget.tokens);
+        } else {
+            for (JobSize size : JobSize.values()) {
+                registerGauges(size.name(), budget -> budget.used.get(size), budget -> budget.capacity.get(size));
+            }
+        }
+        LOGGER.info("Token budget initialized : {}", this);
+    }
+
+    private void registerGauges(String size, ToIntFunction<TokenBudget> usedFunction,
+            ToIntFunction<TokenBudget> capacityFunction) {
+        Gauge.builder("batch.tokens.used", this, budget -> {
+            synchronized (budget) {
+                return usedFunction.applyAsInt(budget);
+            }
+        }).tag("size", size).description("Tokens spent on the jobs held").register(Metrics.globalRegistry);
+        Gauge.builder("batch.tokens.free", this, budget -> {
+            synchronized (budget) {
+                return Math.max(0, capacityFunction.applyAsInt(budget) - usedFunction.applyAsInt(budget));
+            }
+        }).tag("size", size).description("Tokens left for picking up more jobs").register(Metrics.globalRegistry);
+    }
+
+    public Mode getMode() {
+        return tokenMode;
+    }
+
+    public JobSize sizeOf(String jobName) {
+        JobSize defaultSize = BatchConfiguration.jobSizes.getOrDefault(jobName, JobSize.S);
+        return environment.getProperty("job.size." + jobName, JobSize.class, defaultSize);
+    }
+
+    /**
+     * Reserves a token for the job if there is one free. Must be {@link #release(String) released} if the lock for
+     * the job could not be acquired or is given up later.
+     */
+    public synchronized boolean tryReserve(String jobName) {
+        if (tokenMode == Mode.COUNT) {
+            if (usedTokens >= tokens) {
+                return false;
+            }
+            usedTokens++;
+            return true;
+        }
+        JobSize size = sizeOf(jobName);
+        if (used.get(size) >= capacity.get(size)) {
+            return false;
+        }
+        used.merge(size, 1, Integer::sum);
+        return true;
+    }
+
+    public synchronized void release(String jobName) {
+        if (tokenMode == Mode.COUNT) {
+            usedTokens = Math.max(0, usedTokens - 1);
+        } else {
+            used.computeIfPresent(sizeOf(jobName), (size, count) -> Math.max(0, count - 1));
+        }
+    }
+
+    public synchronized boolean hasCapacityFor(String jobName) {
+        return hasCapacityFor(sizeOf(jobName));
+    }
+
+    private boolean hasCapacityFor(JobSize size) {
+        if (tokenMode == Mode.COUNT) {
+            return usedTokens < tokens;
+        }
+        return used.get(size) < capacity.get(size);
+    }
+
+    /**
+     * @return size classes for which this instance can still pick up a job
+     */
+    public synchronized Set<JobSize> freeSizes() {
+        Set<JobSize> freeSizes = EnumSet.noneOf(JobSize.class);
+        for (JobSize size : JobSize.values()) {
+            if (hasCapacityFor(size)) {
+                freeSizes.add(size);
+            }
+        }
+        return freeSizes;
+    }
+
+    public int weightOf(Collection<String> jobNames) {
+        return jobNames.stream().mapToInt(jobName -> sizeOf(jobName).getWeight()).sum();
+    }
+
+    public boolean hasCapacityForAny(Collection<String> jobNames) {
+        return jobNames.stream().anyMatch(this::hasCapacityFor);
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (tokenMode == Mode.COUNT) {
+            return "count mode, " + usedTokens + "/" + tokens + " tokens used";
+        }
+        StringBuilder sb = new StringBuilder("size mode,");
+        for (JobSize size : JobSize.values()) {
+            sb.append(' ').append(size).append(' ').append(used.get(size)).append('/').append(capacity.get(size));
+        }
+        return sb.append(" tokens used").toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.foo.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * High-water mark of the source rows each job has synced, in the WATERMARK table. Updates join the transaction
+ * in progress, so the mark moves in the same commit as the data it covers.
+ * <p>
+ * A job that goes through a table in (timestamp, key) order keeps a {@link Position} instead, so that the rows sharing
+ * the timestamp of the mark are not read twice.
+ */
+@Component
+public class WatermarkStore {
+
+    private static final String SELECT_WATERMARK = "SELECT HIGH_WATER_MARK FROM WATERMARK WHERE JOB_NAME = ?";
+    // never moves backwards, i.e. when a stale execution finishes after a newer one
+    private static final String ADVANCE_WATERMARK = "INSERT INTO WATERMARK (JOB_NAME, HIGH_WATER_MARK, UPDATED_TIME) "
+            + "VALUES (?, ?, now()) ON CONFLICT (JOB_NAME) DO UPDATE SET "
+            + "HIGH_WATER_MARK = GREATEST(WATERMARK.HIGH_WATER_MARK, EXCLUDED.HIGH_WATER_MARK), UPDATED_TIME = now()";
+    private static final String SELECT_POSITION =
+            "SELECT HIGH_WATER_MARK, HIGH_WATER_KEY FROM WATERMARK WHERE JOB_NAME = ?";
+    private static final String ADVANCE_POSITION = "INSERT INTO WATERMARK (JOB_NAME, HIGH_WATER_MARK, HIGH_WATER_KEY, "
+            + "UPDATED_TIME) VALUES (?, ?, ?, now()) ON CONFLICT (JOB_NAME) DO UPDATE SET "
+            + "HIGH_WATER_MARK = EXCLUDED.HIGH_WATER_MARK, HIGH_WATER_KEY = EXCLUDED.HIGH_WATER_KEY, "
+            + "UPDATED_TIME = now() "
+            + "WHERE (WATERMARK.HIGH_WATER_MARK, COALESCE(WATERMARK.HIGH_WATER_KEY, " + Long.MIN_VALUE + ")) "
+            + "< (EXCLUDED.HIGH_WATER_MARK, EXCLUDED.HIGH_WATER_KEY)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return null if the job has not synced anything yet
+     */
+    public Instant get(String jobName) {
+        List<Timestamp> watermarks = jdbcTemplate.queryForList(SELECT_WATERMARK, Timestamp.class, jobName);
+        return watermarks.isEmpty() ? null : watermarks.get(0).toInstant();
+    }
+
+    public void advance(String jobName, Instant highWaterMark) {
+        jdbcTemplate.update(ADVANCE_WATERMARK, jobName, Timestamp.from(highWaterMark));
+    }
+
+    /**
+     * @return null if the job has not gone through anything yet
+     */
+    public Position getPosition(String jobName) {
+        List<Position> positions = jdbcTemplate.query(SELECT_POSITION, (resultSet, rowNum) -> new Position(
+                resultSet.getTimestamp(1).toInstant(),
+                resultSet.getObject(2) == null ? Long.MIN_VALUE : resultSet.getLong(2)), jobName);
+        return positions.isEmpty() ? null : positions.get(0);
+    }
+
+    // never moves backwards either
+    public void advance(String jobName, Position position) {
+        jdbcTemplate.update(ADVANCE_POSITION, jobName, Timestamp.from(position.getHighWaterMark()), position.getKey());
+    }
+
+    /**
+     * High-water mark and the key of the last row at it.
+     */
+    public static class Position {
+
+        public static final Position START = new Position(Instant.EPOCH, Long.MIN_VALUE);
+
+        private final Instant highWaterMark;
+        private final long key;
+
+        public Position(Instant highWaterMark, long key) {
+            this.highWaterMark = highWaterMark;
+            this.key = key;
+        }
+
+        // as kept in a step execution context
+        public static Position parse(String position) {
+            int separator = position.lastIndexOf('/');
+            return new Position(Instant.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        }
+
+        public Instant getHighWaterMark() {
+            return highWaterMark;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        @Override
+        public String toString() {
+            return highWaterMark + "/" + key;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- repository.context-format=cbor keeps the execution contexts here instead of SHORT_CONTEXT / SERIALIZED_CONTEXT
+ALTER TABLE BATCH_JOB_EXECUTION_CONTEXT ADD COLUMN BINARY_CONTEXT BYTEA;
+ALTER TABLE BATCH_JOB_EXECUTION_CONTEXT ALTER COLUMN SHORT_CONTEXT DROP NOT NULL;
+ALTER TABLE BATCH_STEP_EXECUTION_CONTEXT ADD COLUMN BINARY_CONTEXT BYTEA;
+ALTER TABLE BATCH_STEP_EXECUTION_CONTEXT ALTER COLUMN SHORT_CONTEXT DROP NOT NULL;
@@ -0,0 +1,5 @@
+-- STAGED_TRADE_NOTIFY fired on every merge into STAGED_TRADE, even one that changed no row. publisher-job is
+-- triggered by the completion events of the jobs it depends on instead (V1_9__job_completion_event.sql), which
+-- NOTIFY only when the run wrote something.
+
+DROP TRIGGER IF EXISTS STAGED_TRADE_NOTIFY ON STAGED_TRADE;
@@ -0,0 +1,6 @@
+-- position of the jobs that go through a table in (timestamp, key) order, i.e. publisher-job through STAGED_TRADE :
+-- the key of the last row at the high-water mark. See WatermarkStore.Position
+
+ALTER TABLE WATERMARK ADD COLUMN HIGH_WATER_KEY BIGINT;
+
+CREATE INDEX STAGED_TRADE_LAST_UPDATED_IDX ON STAGED_TRADE (LAST_UPDATED, TRADE_ID);
@@ -0,0 +1,13 @@
+-- lease table used by PostgresJobCoordinator (coordinator.backend=postgres)
+
+CREATE TABLE JOB_LOCK  (
+	LOCK_NAME VARCHAR(250) NOT NULL PRIMARY KEY ,
+	OWNER_NAME VARCHAR(250) NOT NULL ,
+	FENCING_TOKEN BIGINT NOT NULL ,
+	HEARTBEAT_COUNT BIGINT NOT NULL ,
+	LEASE_UNTIL TIMESTAMPTZ NOT NULL ,
+	LEASE_DURATION_MS BIGINT NOT NULL ,
+	DATA BYTEA
+) ;
+
+CREATE SEQUENCE JOB_LOCK_SEQ MAXVALUE 9223372036854775807 NO CYCLE;
@@ -0,0 +1,37 @@
+-- source and staging tables of trade-job and price-job
+
+CREATE TABLE SOURCE_TRADE  (
+	TRADE_ID BIGINT NOT NULL PRIMARY KEY ,
+	BUSINESS_DATE DATE NOT NULL ,
+	INSTRUMENT VARCHAR(50) NOT NULL ,
+	QUANTITY NUMERIC(19,4) NOT NULL ,
+	PRICE NUMERIC(19,6) NOT NULL ,
+	LAST_UPDATED TIMESTAMPTZ NOT NULL
+) ;
+
+CREATE TABLE STAGED_TRADE  (
+	TRADE_ID BIGINT NOT NULL PRIMARY KEY ,
+	BUSINESS_DATE DATE NOT NULL ,
+	INSTRUMENT VARCHAR(50) NOT NULL ,
+	QUANTITY NUMERIC(19,4) NOT NULL ,
+	PRICE NUMERIC(19,6) NOT NULL ,
+	LAST_UPDATED TIMESTAMPTZ NOT NULL
+) ;
+
+CREATE TABLE SOURCE_PRICE  (
+	INSTRUMENT VARCHAR(50) NOT NULL ,
+	BUSINESS_DATE DATE NOT NULL ,
+	PRICE NUMERIC(19,6) NOT NULL ,
+	LAST_UPDATED TIMESTAMPTZ NOT NULL ,
+	constraint SOURCE_PRICE_PK primary key (INSTRUMENT, BUSINESS_DATE)
+) ;
+
+CREATE INDEX SOURCE_PRICE_BUSINESS_DATE_IDX ON SOURCE_PRICE (BUSINESS_DATE, INSTRUMENT);
+
+CREATE TABLE STAGED_PRICE  (
+	INSTRUMENT VARCHAR(50) NOT NULL ,
+	BUSINESS_DATE DATE NOT NULL ,
+	PRICE NUMERIC(19,6) NOT NULL ,
+	LAST_UPDATED TIMESTAMPTZ NOT NULL ,
+	constraint STAGED_PRICE_PK primary key (INSTRUMENT, BUSINESS_DATE)
+) ;
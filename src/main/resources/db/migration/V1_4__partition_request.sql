@@ -0,0 +1,12 @@
+-- queue of remote partitions (etl.partition.mode=remote). See PartitionRequestChannel
+
+CREATE TABLE PARTITION_REQUEST  (
+	ID BIGSERIAL NOT NULL PRIMARY KEY ,
+	CHANNEL VARCHAR(100) NOT NULL ,
+	STEP_NAME VARCHAR(100) NOT NULL ,
+	JOB_EXECUTION_ID BIGINT NOT NULL ,
+	STEP_EXECUTION_ID BIGINT NOT NULL ,
+	CREATED_TIME TIMESTAMPTZ NOT NULL DEFAULT now()
+) ;
+
+CREATE INDEX PARTITION_REQUEST_CHANNEL_IDX ON PARTITION_REQUEST (CHANNEL, ID);
@@ -0,0 +1,18 @@
+-- unlogged load tables COPY writes into (etl.staging.writer=copy). Merged into STAGED_* and truncated by every run.
+-- unlogged : not written to the WAL and emptied after a crash, which is fine for rows that are re-read from source.
+
+CREATE UNLOGGED TABLE STAGED_TRADE_LOAD  (
+	TRADE_ID BIGINT NOT NULL ,
+	BUSINESS_DATE DATE NOT NULL ,
+	INSTRUMENT VARCHAR(50) NOT NULL ,
+	QUANTITY NUMERIC(19,4) NOT NULL ,
+	PRICE NUMERIC(19,6) NOT NULL ,
+	LAST_UPDATED TIMESTAMPTZ NOT NULL
+) ;
+
+CREATE UNLOGGED TABLE STAGED_PRICE_LOAD  (
+	INSTRUMENT VARCHAR(50) NOT NULL ,
+	BUSINESS_DATE DATE NOT NULL ,
+	PRICE NUMERIC(19,6) NOT NULL ,
+	LAST_UPDATED TIMESTAMPTZ NOT NULL
+) ;
@@ -0,0 +1,10 @@
+-- high-water marks of the incremental jobs (etl.sync-mode=incremental). See WatermarkStore
+
+CREATE TABLE WATERMARK  (
+	JOB_NAME VARCHAR(100) NOT NULL PRIMARY KEY ,
+	HIGH_WATER_MARK TIMESTAMPTZ NOT NULL ,
+	UPDATED_TIME TIMESTAMPTZ NOT NULL
+) ;
+
+CREATE INDEX SOURCE_TRADE_LAST_UPDATED_IDX ON SOURCE_TRADE (LAST_UPDATED);
+CREATE INDEX SOURCE_PRICE_LAST_UPDATED_IDX ON SOURCE_PRICE (LAST_UPDATED);
@@ -0,0 +1,31 @@
+-- indexes for the queries JobExplorer / JobRepository run on every tick, and for JobRepositoryRetention.
+-- V1_1 only has the primary keys and JOB_INST_UN.
+
+-- findJobInstancesByJobName : latest instances of a job
+CREATE INDEX IF NOT EXISTS JOB_INST_NAME_IDX ON BATCH_JOB_INSTANCE (JOB_NAME, JOB_INSTANCE_ID DESC);
+
+-- getJobExecutions(jobInstance) and the joins from instances to executions
+CREATE INDEX IF NOT EXISTS JOB_EXEC_INST_IDX ON BATCH_JOB_EXECUTION (JOB_INSTANCE_ID, JOB_EXECUTION_ID DESC);
+
+-- findRunningJobExecutions : only the handful of executions that have not ended
+CREATE INDEX IF NOT EXISTS JOB_EXEC_RUNNING_IDX ON BATCH_JOB_EXECUTION (JOB_INSTANCE_ID) WHERE END_TIME IS NULL;
+
+-- retention
+CREATE INDEX IF NOT EXISTS JOB_EXEC_END_TIME_IDX ON BATCH_JOB_EXECUTION (END_TIME);
+
+-- foreign keys, looked up when loading and deleting executions
+CREATE INDEX IF NOT EXISTS JOB_EXEC_PARAMS_EXEC_IDX ON BATCH_JOB_EXECUTION_PARAMS (JOB_EXECUTION_ID);
+CREATE INDEX IF NOT EXISTS STEP_EXEC_JOB_EXEC_IDX ON BATCH_STEP_EXECUTION (JOB_EXECUTION_ID, STEP_EXECUTION_ID);
+
+-- summaries of purged executions (retention.archive=true)
+CREATE TABLE BATCH_JOB_EXECUTION_ARCHIVE  (
+	JOB_EXECUTION_ID BIGINT NOT NULL PRIMARY KEY ,
+	JOB_NAME VARCHAR(100) NOT NULL ,
+	STATUS VARCHAR(10) ,
+	EXIT_CODE VARCHAR(2500) ,
+	START_TIME TIMESTAMPTZ ,
+	END_TIME TIMESTAMPTZ ,
+	READ_COUNT BIGINT ,
+	WRITE_COUNT BIGINT ,
+	ARCHIVED_TIME TIMESTAMPTZ NOT NULL
+) ;
@@ -0,0 +1,18 @@
+-- NOTIFY on changes of the source and staging tables, for the jobs scheduled with type=event. See JobEventListener.
+-- Statement level, so that a bulk load is one notification. The payload is the job to trigger.
+
+CREATE OR REPLACE FUNCTION NOTIFY_JOB_TRIGGER() RETURNS TRIGGER AS $$
+BEGIN
+	PERFORM pg_notify('datasync_job_trigger', TG_ARGV[0]);
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER SOURCE_TRADE_NOTIFY AFTER INSERT OR UPDATE ON SOURCE_TRADE
+	FOR EACH STATEMENT EXECUTE PROCEDURE NOTIFY_JOB_TRIGGER('trade-job');
+
+CREATE TRIGGER SOURCE_PRICE_NOTIFY AFTER INSERT OR UPDATE ON SOURCE_PRICE
+	FOR EACH STATEMENT EXECUTE PROCEDURE NOTIFY_JOB_TRIGGER('price-job');
+
+CREATE TRIGGER STAGED_TRADE_NOTIFY AFTER INSERT OR UPDATE ON STAGED_TRADE
+	FOR EACH STATEMENT EXECUTE PROCEDURE NOTIFY_JOB_TRIGGER('publisher-job');
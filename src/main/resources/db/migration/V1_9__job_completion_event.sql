@@ -0,0 +1,14 @@
+-- completed runs of the jobs other jobs depend on (BatchConfiguration.jobDependencies). See JobCompletionEvents.
+-- Purged along with their job executions by JobRepositoryRetention.
+
+CREATE TABLE JOB_COMPLETION_EVENT  (
+	EVENT_ID BIGSERIAL NOT NULL PRIMARY KEY ,
+	JOB_NAME VARCHAR(100) NOT NULL ,
+	JOB_EXECUTION_ID BIGINT NOT NULL ,
+	STATUS VARCHAR(10) NOT NULL ,
+	FOUND_DATA BOOLEAN NOT NULL ,
+	CREATED_TIME TIMESTAMPTZ NOT NULL DEFAULT now()
+) ;
+
+CREATE INDEX JOB_COMPLETION_EVENT_JOB_IDX ON JOB_COMPLETION_EVENT (JOB_NAME, CREATED_TIME);
+CREATE INDEX JOB_COMPLETION_EVENT_EXEC_IDX ON JOB_COMPLETION_EVENT (JOB_EXECUTION_ID);